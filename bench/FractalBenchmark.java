@@ -0,0 +1,211 @@
+/**
+ * Desc: JMH benchmarks of the parts of the program that matter for speed so every change
+ * to the kernels, the edge tracer or the coloring can be compared to how fast it was before,
+ * JMH does the warmups, the forks and keeps the JIT from throwing the results away
+ * build with mvn -P jmh package and run with java -jar target/benchmarks.jar
+ */
+package FractalExplorer.scr;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules=jdk.incubator.vector", "-Djava.awt.headless=true"})
+public class FractalBenchmark {
+
+    /*
+     * places in the fractal that stress the engines in different ways
+     * home: mostly inside the set so the bulb check and the tracer do all the work
+     * seahorse, elephant: lots of edges and slow escaping pixels
+     * julia: julia set with a big attracting cycle
+     * dendrite: julia set with no inside at all
+     * minibrot: a deep minibrot of period 37 filling the screen, where the distance estimate discs pay off
+     */
+    @Param({"home", "seahorse", "elephant", "julia", "dendrite", "minibrot"})
+    public String location;
+
+    @Param({"100", "1000"})
+    public int maxIter;
+
+    @Param({"640"})
+    public int width;
+
+    @Param({"512"})
+    public int height;
+
+    private FractalMath math;
+
+    /**
+     * moves to the location and calculates a frame so the coloring benchmarks have something to color,
+     * the ones that need the escape fractions get a frame that kept them
+     * @param params which benchmark is about to run
+     */
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) {
+        math = new FractalMath(null, maxIter, width, height);
+        switch (location) {
+            case "home": view(-0.5, 0, 0, 0, 0); break;
+            case "seahorse": view(-0.7436447860, 0.1318252536, 40, 0, 0); break;
+            case "elephant": view(0.2925, 0.0149, 30, 0, 0); break;
+            case "julia": view(0, 0, 0, -0.8, 0.156); break;
+            case "dendrite": view(0, 0, 0, 0, 1); break;
+            case "minibrot": view(-0.7439061924456758, 0.13171369406117078, 82, 0, 0); break;
+            default: throw new IllegalArgumentException("Unknown location " + location);
+        }
+        String name = params.getBenchmark();
+        if (name.endsWith("Vector") && !FractalMath.isVectorAvailable()) {
+            throw new IllegalStateException("Vector kernels need scr/vector compiled in and --add-modules jdk.incubator.vector");
+        }
+        if (name.endsWith("colorSmooth")) {
+            math.getPalette().mode = FractalPalette.MODE_CONTINUOUS;
+        } else if (name.endsWith("colorHistogram")) {
+            math.getPalette().mode = FractalPalette.MODE_HISTOGRAM;
+        }
+        math.edgeDetectionFractal();
+    }
+
+    private void view(double real, double imag, int zoomLevel, double seedReal, double seedImag) {
+        math.setSeed(seedReal, seedImag);
+        math.setView(real, imag, zoomLevel);
+        math.selectPrecision();
+    }
+
+    /**
+     * the tracer skipping pixels is only worth timing if it didnt get any of them wrong
+     * @see FractalEdgeTrace#verify()
+     */
+    @TearDown(Level.Trial)
+    public void checkFrame() {
+        long wrong = math.getTracer().verify();
+        if (wrong != 0) {
+            throw new IllegalStateException(wrong + " pixels of the last frame are wrong");
+        }
+    }
+
+    /**
+     * every pixel one at a time with the double kernels and nothing skipped
+     */
+    @Benchmark
+    public long kernel() {
+        boolean julia = math.seedReal != 0 || math.seedImag != 0;
+        long total = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                total += julia ? math.juliaSet(x, y) : math.mandelbrotSet(x, y);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * a whole frame through the edge tracer splitting rectangles
+     */
+    @Benchmark
+    public long frameRectangles() {
+        return frame(FractalMath.ENGINE_RECTANGLES, false);
+    }
+
+    @Benchmark
+    public long frameRectanglesVector() {
+        return frame(FractalMath.ENGINE_RECTANGLES, true);
+    }
+
+    /**
+     * a whole frame through the edge tracer following the edges
+     */
+    @Benchmark
+    public long frameBoundary() {
+        return frame(FractalMath.ENGINE_BOUNDARY, false);
+    }
+
+    @Benchmark
+    public long frameBoundaryVector() {
+        return frame(FractalMath.ENGINE_BOUNDARY, true);
+    }
+
+    /**
+     * a whole frame through the edge tracer splitting rectangles
+     * after the distance estimate filled the discs it could prove
+     * @see FractalDistanceEstimate#fillDiscs()
+     */
+    @Benchmark
+    public long frameDiscs() {
+        math.useDistanceEstimation = true;
+        long calls = frame(FractalMath.ENGINE_RECTANGLES, false);
+        math.useDistanceEstimation = false;
+        return calls;
+    }
+
+    /**
+     * @return how many pixels went through a kernel so the frame cant be thrown away
+     */
+    private long frame(int engine, boolean useVector) {
+        math.engine = engine;
+        math.useVector = useVector;
+        math.edgeDetectionFractal();
+        return math.getPixelsIterated();
+    }
+
+    /**
+     * sampling the pixels on the edges of the frame from the setup again every time
+     */
+    @Benchmark
+    public void antialias(Blackhole blackhole) {
+        math.antiAlias = true;
+        math.getSupersample().forget();
+        blackhole.consume(math.supersampleEdges());
+        blackhole.consume(math.getSupersample().lastPixelCount);
+    }
+
+    /**
+     * coloring the frame from the setup
+     */
+    @Benchmark
+    public int color() {
+        math.filter = 0;
+        math.colorData();
+        return math.getColor(width / 2, height / 2);
+    }
+
+    @Benchmark
+    public int colorEdges() {
+        math.filter = 2;
+        math.colorData();
+        return math.getPixels()[(height / 2) * width + width / 2];
+    }
+
+    /**
+     * the continuous colors with the escape fractions the setup frame kept
+     */
+    @Benchmark
+    public int colorSmooth() {
+        return color();
+    }
+
+    /**
+     * counts the histogram again every time
+     */
+    @Benchmark
+    public int colorHistogram() {
+        return color();
+    }
+}
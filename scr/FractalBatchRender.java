@@ -0,0 +1,200 @@
+/**
+ * Desc: renders a list of views of the fractal straight into image files
+ * with the same engine the explorer uses but without any window,
+ * so it can run on a server with no screen, every view gets written as a
+ * PPM picture and the speed of each one is printed in pixels per second
+ */
+package FractalExplorer.scr;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FractalBatchRender {
+
+    /**
+     * java FractalExplorer.scr.FractalBatchRender width height jobs outputFolder [vector] [boundary] [discs]
+     * [continuous|histogram] [fire|ocean|random] [antialias] [float]
+     * every line of the jobs file (or - for standard input) is one view:
+     * name real imag zoomLevel maxIter [seedReal seedImag]
+     * lines starting with # get skipped, the center keeps every digit it was written with
+     * so deep zooms go to exactly the right place
+     * @param args the size of the pictures, where the jobs are, where the pictures go
+     * and vector to use the vector kernels, boundary to follow the edges instead of splitting rectangles,
+     * discs to fill the discs the distance estimate finds first,
+     * continuous or histogram to color them that way, a palette name to use that palette
+     * antialias to average 16 samples inside every pixel on an edge of the colors
+     * and float to let shallow views use the faster but less exact float kernels
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: FractalBatchRender width height jobs|- outputFolder [vector] [boundary] [discs]"
+                + " [continuous|histogram] [fire|ocean|random] [antialias] [float]");
+            System.out.println("Job lines: name real imag zoomLevel maxIter [seedReal seedImag]");
+            System.exit(1);
+        }
+        int width = Integer.parseInt(args[0]);
+        int height = Integer.parseInt(args[1]);
+        List<Job> jobs = readJobs(args[2]);
+        Path outputFolder = Paths.get(args[3]);
+        boolean useVector = false;
+        boolean boundary = false;
+        boolean discs = false;
+        boolean antiAlias = false;
+        boolean allowFloat = false;
+        int colorMode = FractalPalette.MODE_BANDS;
+        int palette = FractalPalette.PALETTE_RAINBOW;
+        for (int i = 4; i < args.length; i++) {
+            useVector |= args[i].equals("vector");
+            boundary |= args[i].equals("boundary");
+            discs |= args[i].equals("discs");
+            antiAlias |= args[i].equals("antialias");
+            allowFloat |= args[i].equals("float");
+            switch (args[i]) {
+                case "continuous": colorMode = FractalPalette.MODE_CONTINUOUS; break;
+                case "histogram": colorMode = FractalPalette.MODE_HISTOGRAM; break;
+                case "fire": palette = FractalPalette.PALETTE_FIRE; break;
+                case "ocean": palette = FractalPalette.PALETTE_OCEAN; break;
+                case "random": palette = FractalPalette.PALETTE_RANDOM; break;
+            }
+        }
+        if (useVector && !FractalMath.isVectorAvailable()) {
+            System.out.println("Vector kernels need scr/vector compiled in and the program started with --add-modules jdk.incubator.vector");
+            System.exit(1);
+        }
+        Files.createDirectories(outputFolder);
+
+        FractalMath math = new FractalMath(null, 100, width, height);
+        math.useVector = useVector;
+        math.engine = boundary ? FractalMath.ENGINE_BOUNDARY : FractalMath.ENGINE_RECTANGLES;
+        math.useDistanceEstimation = discs;
+        math.antiAlias = antiAlias;
+        math.allowFloat = allowFloat;
+        math.getPalette().mode = colorMode;
+        math.getPalette().setPalette(palette);
+        //so the render farm can watch the renders over JMX too
+        math.getTracer().stats.register();
+        long pixels = (long) width * height;
+        long totalTime = 0;
+        for (Job job : jobs) {
+            long startTime = System.nanoTime();
+            render(math, job);
+            long time = System.nanoTime() - startTime;
+            totalTime += time;
+            Path file = outputFolder.resolve(job.name + ".ppm");
+            writePPM(file, math.getPixels(), width, height);
+            System.out.println(String.format("%s: %.1fms %.0f pixels/s Precision: %s -> %s",
+                job.name, time / 1e6, pixels / (time / 1e9), math.getPrecisionName(), file));
+        }
+        if (!jobs.isEmpty()) {
+            System.out.println(String.format("Rendered %d views of %dx%d in %.1fms, %.0f pixels/s",
+                jobs.size(), width, height, totalTime / 1e6, pixels * jobs.size() / (totalTime / 1e9)));
+        }
+        System.exit(0);
+    }
+
+    /**
+     * calculates and colors one view, the colors end up in math.getPixels()
+     * @param math math the size of the picture
+     * @param job view to render
+     */
+    public static void render(FractalMath math, Job job) {
+        math.maxIter = job.maxIter;
+        math.setSeed(job.seedReal, job.seedImag);
+        math.setView(job.real, job.imag, job.zoomLevel);
+        math.edgeDetectionFractal();
+        math.colorData();
+    }
+
+    /**
+     * @param source path of the jobs file or - for standard input
+     * @return every view in it in order
+     */
+    private static List<Job> readJobs(String source) throws IOException {
+        BufferedReader reader = source.equals("-")
+            ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+            : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8);
+        List<Job> jobs = new ArrayList<>();
+        try (reader) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                if (parts.length != 5 && parts.length != 7) {
+                    throw new IOException("Line " + lineNumber + " needs name real imag zoomLevel maxIter [seedReal seedImag]: " + line);
+                }
+                try {
+                    jobs.add(new Job(parts[0], new BigDecimal(parts[1]), new BigDecimal(parts[2]),
+                        Integer.parseInt(parts[3]), Integer.parseInt(parts[4]),
+                        parts.length == 7 ? Double.parseDouble(parts[5]) : 0,
+                        parts.length == 7 ? Double.parseDouble(parts[6]) : 0));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Line " + lineNumber + " has a bad number: " + line);
+                }
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * writes ARGB pixels as a binary PPM picture, the alpha gets dropped
+     * @param file where the picture goes
+     * @param argb one color per pixel a row at a time
+     * @param width width of the picture
+     * @param height height of the picture
+     */
+    public static void writePPM(Path file, int[] argb, int width, int height) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            out.write(("P6\n" + width + " " + height + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+            byte[] row = new byte[width * 3];
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int color = argb[y * width + x];
+                    row[x * 3] = (byte) (color >> 16);
+                    row[x * 3 + 1] = (byte) (color >> 8);
+                    row[x * 3 + 2] = (byte) color;
+                }
+                out.write(row);
+            }
+        }
+    }
+
+    /**
+     * one view of the fractal to render
+     */
+    public static class Job {
+        public String name;
+        //more digits than a double can hold for views zoomed in past what doubles can tell apart
+        public BigDecimal real;
+        public BigDecimal imag;
+        public int zoomLevel;
+        public int maxIter;
+        //0, 0 for the mandelbrot set
+        public double seedReal;
+        public double seedImag;
+
+        public Job(String name, BigDecimal real, BigDecimal imag, int zoomLevel, int maxIter, double seedReal, double seedImag) {
+            this.name = name;
+            this.real = real;
+            this.imag = imag;
+            this.zoomLevel = zoomLevel;
+            this.maxIter = maxIter;
+            this.seedReal = seedReal;
+            this.seedImag = seedImag;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/**
+ * Desc: the second way of skipping calculations, instead of checking whether the border
+ * of a rectangle is all the same it follows the lines where the iteration count changes
+ * pixel by pixel and only calculates the pixels on both sides of them, everything those
+ * lines close off never gets calculated and gets filled in with the color around it,
+ * works a lot better than splitting rectangles on thin filaments and spirals
+ * where almost every rectangle has an edge going through it
+ */
+package FractalExplorer.scr;
+
+import java.util.Arrays;
+
+public class FractalBoundaryTrace {
+
+    //how many pixels get taken off the queue between checks for a cancelled frame
+    private static final int CANCEL_CHECK = 4096;
+
+    private FractalMath math;
+    private FractalEdgeTrace tracer;
+
+    //queue of pixels to look at, one per thread so the tiles dont share anything
+    private ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+
+    public FractalBoundaryTrace(FractalMath math, FractalEdgeTrace tracer) {
+        this.math = math;
+        this.tracer = tracer;
+    }
+
+    /**
+     * calculates the border of a tile and follows every edge it finds into the tile,
+     * a pixel that turns out to have a neighbour with a different iteration count is on an edge
+     * so the neighbours of both get calculated and checked the same way untill the edge is followed all the way,
+     * once there are no edges left every patch of pixels that never got reached gets filled in
+     * if the pixels around it all took the same number of iterations, an edge can still run
+     * into a patch from a corner where two pixels only touch diagonally so a patch with
+     * different counts around it gets its rim calculated and traced again untill none are left,
+     * the tiles never look outside themselves so they can run on different threads at the same time
+     * @param startX left of the tile
+     * @param startY top of the tile
+     * @param tileWidth width of the tile
+     * @param tileHeight height of the tile
+     * @return how many pixels got filled in without being calculated
+     * @see FractalEdgeTrace#calculateEdgeFractal()
+     */
+    public long renderTile(int startX, int startY, int tileWidth, int tileHeight){
+        if(tracer.cancelled || tileWidth <= 0 || tileHeight <= 0){
+            return 0;
+        }
+        //the border whole lines at a time so the vector kernels get used for it
+        math.drawFractalLine(startX, startY, tileWidth, false);
+        math.drawFractalLine(startX, startY + tileHeight - 1, tileWidth, false);
+        math.drawFractalLine(startX, startY + 1, tileHeight - 2, true);
+        math.drawFractalLine(startX + tileWidth - 1, startY + 1, tileHeight - 2, true);
+
+        Scratch scratch = scratches.get();
+        scratch.start(tileWidth, tileHeight);
+        //everything known so far, the border and whatever came from the cache or the last frame
+        for(int y = 0; y < tileHeight; y++){
+            for(int x = 0; x < tileWidth; x++){
+                if(math.isKnown(startX + x, startY + y)){
+                    scratch.add(y * tileWidth + x);
+                }
+            }
+        }
+
+        long filled = 0;
+        while(true){
+            if(!trace(scratch, startX, startY)){
+                return 0;
+            }
+            scratch.startPatches();
+            boolean mixed = false;
+            for(int index = 0; index < tileWidth * tileHeight; index++){
+                if(scratch.queued[index] || scratch.seen[index]){
+                    continue;
+                }
+                int count = findPatch(scratch, index, startX, startY);
+                if(scratch.patchUniform){
+                    for(int p = 0; p < count; p++){
+                        int pixel = scratch.patch[p];
+                        //the continuous colors calculate it instead so it only counts if it really got filled
+                        if(math.fillPixel(startX + pixel % tileWidth, startY + pixel / tileWidth, scratch.patchIter)){
+                            filled++;
+                        }
+                        //known now so the next round doesnt look at it again
+                        scratch.queued[pixel] = true;
+                    }
+                } else {
+                    //two edges only touch diagonally somewhere around it so the pixels along
+                    //its rim get calculated and the edges followed in from there
+                    mixed = true;
+                    for(int p = 0; p < count; p++){
+                        if(scratch.touchesKnown(scratch.patch[p])){
+                            scratch.add(scratch.patch[p]);
+                        }
+                    }
+                }
+            }
+            if(!mixed){
+                return filled;
+            }
+        }
+    }
+
+    /**
+     * calculates every pixel in the queue and queues the neighbours of every edge it finds
+     * untill the queue is empty, carrying on from wherever the last call stopped
+     * @param scratch queue of the tile
+     * @param start cords of the tile on the canvas
+     * @return false if the frame got cancelled
+     */
+    private boolean trace(Scratch scratch, int startX, int startY){
+        int tileWidth = scratch.width;
+        int tileHeight = scratch.height;
+        while(scratch.head < scratch.tail){
+            if(scratch.head % CANCEL_CHECK == 0 && tracer.cancelled){
+                return false;
+            }
+            int index = scratch.queue[scratch.head++];
+            int x = index % tileWidth;
+            int y = index / tileWidth;
+            //calculates it if it only just got queued
+            int iter = math.drawFractal(startX + x, startY + y);
+            if(x > 0 && differs(startX + x - 1, startY + y, iter)){
+                scratch.addNeighbours(index);
+                scratch.addNeighbours(index - 1);
+            }
+            if(x < tileWidth - 1 && differs(startX + x + 1, startY + y, iter)){
+                scratch.addNeighbours(index);
+                scratch.addNeighbours(index + 1);
+            }
+            if(y > 0 && differs(startX + x, startY + y - 1, iter)){
+                scratch.addNeighbours(index);
+                scratch.addNeighbours(index - tileWidth);
+            }
+            if(y < tileHeight - 1 && differs(startX + x, startY + y + 1, iter)){
+                scratch.addNeighbours(index);
+                scratch.addNeighbours(index + tileWidth);
+            }
+        }
+        //the border might not all be there if it got cancelled while it was drawn
+        return !tracer.cancelled;
+    }
+
+    /**
+     * finds every unknown pixel connected to a pixel without going diagonally
+     * and checks whether the known pixels around them all took the same number of iterations
+     * @param scratch queue of the tile, only called once its empty
+     * @param index of an unknown pixel in the tile
+     * @param start cords of the tile on the canvas
+     * @return how many pixels are in the patch, they end up at the start of the patch array
+     */
+    private int findPatch(Scratch scratch, int index, int startX, int startY){
+        int tileWidth = scratch.width;
+        int[] patch = scratch.patch;
+        int count = 0;
+        patch[count++] = index;
+        scratch.seen[index] = true;
+        scratch.patchUniform = true;
+        scratch.patchIter = -1;
+        for(int p = 0; p < count; p++){
+            int pixel = patch[p];
+            //the border of the tile is always known so none of these go off the tile
+            for(int side = 0; side < 4; side++){
+                int neighbour = side == 0 ? pixel - 1 : side == 1 ? pixel + 1 : side == 2 ? pixel - tileWidth : pixel + tileWidth;
+                if(scratch.queued[neighbour]){
+                    int iter = math.getIterations(startX + neighbour % tileWidth, startY + neighbour / tileWidth);
+                    if(scratch.patchIter == -1){
+                        scratch.patchIter = iter;
+                    } else if(iter != scratch.patchIter){
+                        scratch.patchUniform = false;
+                    }
+                } else if(!scratch.seen[neighbour]){
+                    scratch.seen[neighbour] = true;
+                    patch[count++] = neighbour;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param cords of the neighbour on the canvas
+     * @param iter iteration count of the pixel next to it
+     * @return true if the neighbour is known and took a different number of iterations
+     */
+    private boolean differs(int x, int y, int iter){
+        return math.isKnown(x, y) && math.getIterations(x, y) != iter;
+    }
+
+    /**
+     * the queue of the tile being traced and which pixels have been in it,
+     * a pixel only ever goes in once so the queue never needs more room than the tile,
+     * once its empty every pixel that was never queued is unknown
+     */
+    private static class Scratch {
+        int[] queue = new int[0];
+        boolean[] queued = new boolean[0];
+        int head;
+        int tail;
+        int width;
+        int height;
+        //pixels of the patch of unknown pixels found last and which ones were in a patch this round
+        int[] patch = new int[0];
+        boolean[] seen = new boolean[0];
+        //true if every known pixel around the last patch took patchIter iterations
+        boolean patchUniform;
+        int patchIter;
+
+        /**
+         * empties the queue for a new tile, only allocates when the tile is bigger than any before it
+         */
+        void start(int width, int height) {
+            this.width = width;
+            this.height = height;
+            int pixels = width * height;
+            if(queue.length < pixels){
+                queue = new int[pixels];
+                queued = new boolean[pixels];
+                patch = new int[pixels];
+                seen = new boolean[pixels];
+            } else {
+                Arrays.fill(queued, 0, pixels, false);
+            }
+            head = 0;
+            tail = 0;
+        }
+
+        /**
+         * forgets which pixels were in a patch so the ones still unknown can be found again
+         */
+        void startPatches() {
+            Arrays.fill(seen, 0, width * height, false);
+        }
+
+        /**
+         * @param index of an unknown pixel inside the tile
+         * @return true if one of the 4 pixels next to it is known
+         */
+        boolean touchesKnown(int index) {
+            return queued[index - 1] || queued[index + 1] || queued[index - width] || queued[index + width];
+        }
+
+        /**
+         * @param index of the pixel in the tile
+         */
+        void add(int index) {
+            if(!queued[index]){
+                queued[index] = true;
+                queue[tail++] = index;
+            }
+        }
+
+        /**
+         * queues the 4 pixels next to a pixel that is on an edge
+         * @param index of the pixel in the tile
+         */
+        void addNeighbours(int index) {
+            int x = index % width;
+            int y = index / width;
+            if(x > 0){
+                add(index - 1);
+            }
+            if(x < width - 1){
+                add(index + 1);
+            }
+            if(y > 0){
+                add(index - width);
+            }
+            if(y < height - 1){
+                add(index + width);
+            }
+        }
+    }
+}
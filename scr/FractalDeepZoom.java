@@ -0,0 +1,318 @@
+/**
+ * Desc: calculates the mandelbrot set past the point where double-doubles run out of precision
+ * by calculating one reference orbit in the middle of the screen with BigDecimals
+ * and then only calculating how far away every pixel's orbit is from it with doubles
+ * (perturbation theory) which keeps deep zooms almost as fast as normal ones
+ */
+package FractalExplorer.scr;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.atomic.LongAdder;
+
+public class FractalDeepZoom {
+
+    //how small the cubic term of the series has to stay compared to the linear one
+    private static final double SERIES_TOLERANCE = 1e-9;
+
+    private FractalMath math;
+
+    //center of the screen with as many digits as the zoom needs
+    public BigDecimal centerReal;
+    public BigDecimal centerImag;
+
+    //reference orbit at the center of the screen
+    private double[] refReal = new double[0];
+    private double[] refImag = new double[0];
+    private int refLength;
+    //iterations every pixel can skip thanks to the series approximation
+    private int skipIterations;
+    //series coefficients at the skipped iteration
+    private double aReal, aImag, bReal, bImag, cReal, cImag;
+    //how far the top left pixel is from the reference, the same grid FractalMath#xToReal(int) uses
+    private double minDcReal;
+    private double minDcImag;
+
+    //view the reference orbit was calculated for
+    private BigDecimal refCenterReal;
+    private BigDecimal refCenterImag;
+    private double refZoom;
+    private int refMaxIter;
+
+    //how many pixels had to be rebased because they glitched in the last frame
+    public LongAdder glitchCount = new LongAdder();
+
+    /**
+     * @param math the math of the fractal being zoomed
+     */
+    public FractalDeepZoom(FractalMath math) {
+        this.math = math;
+        centerReal = new BigDecimal(math.centerReal);
+        centerImag = new BigDecimal(math.centerImag);
+    }
+
+    /**
+     * @return true if the fractal is zoomed in too far for double-doubles
+     * and the mandelbrot set is being drawn
+     * @see FractalMath#selectPrecision()
+     */
+    public boolean isActive() {
+        return math.precision == FractalMath.PRECISION_ARBITRARY && math.seedReal == 0 && math.seedImag == 0;
+    }
+
+    /**
+     * moves the precise center, called everytime the fractal gets dragged
+     * @param dReal change in the real part
+     * @param dImag change in the imaginary part
+     * @see FractalMath#updateOffset(int, int)
+     */
+    public void moveCenter(double dReal, double dImag) {
+        centerReal = centerReal.add(new BigDecimal(dReal));
+        centerImag = centerImag.add(new BigDecimal(dImag));
+        //keeps the number of digits from growing forever
+        centerReal = centerReal.round(getMathContext());
+        centerImag = centerImag.round(getMathContext());
+    }
+
+    /**
+     * puts the center back to where the doubles say it is
+     * @see FractalMath#resetFractal()
+     */
+    public void resetCenter() {
+        centerReal = new BigDecimal(math.centerReal);
+        centerImag = new BigDecimal(math.centerImag);
+    }
+
+    /**
+     * jumps the precise center straight to a point that has more digits than a double
+     * @param real real part of the center
+     * @param imag imaginary part of the center
+     * @see FractalMath#setView(BigDecimal, BigDecimal, int)
+     */
+    public void setCenter(BigDecimal real, BigDecimal imag) {
+        centerReal = real;
+        centerImag = imag;
+    }
+
+    /**
+     * @return enough digits to tell pixels apart at the current zoom
+     */
+    private MathContext getMathContext() {
+        int digits = (int) Math.max(Math.log10(Math.max(math.zoom, 1)), 0) + 20;
+        return new MathContext(digits);
+    }
+
+    /**
+     * recalculates the reference orbit if the view changed since the last frame
+     * has to be called before the threads start drawing pixels
+     * @see FractalMath#edgeDetectionFractal()
+     */
+    public void prepare() {
+        glitchCount.reset();
+        if (!isActive()) {
+            return;
+        }
+        //the corner is a few screens at most from the center so the difference fits in a double
+        minDcReal = math.getPreciseMinReal().subtract(centerReal).doubleValue();
+        minDcImag = math.getPreciseMinImag().subtract(centerImag).doubleValue();
+        if (centerReal.equals(refCenterReal) && centerImag.equals(refCenterImag)
+                && math.zoom == refZoom && math.maxIter == refMaxIter) {
+            return;
+        }
+        refCenterReal = centerReal;
+        refCenterImag = centerImag;
+        refZoom = math.zoom;
+        refMaxIter = math.maxIter;
+        calculateReferenceOrbit();
+        calculateSeries();
+    }
+
+    /**
+     * calculates the orbit of the center of the screen with BigDecimals
+     * and stores it as doubles since the orbit itself is never tiny
+     */
+    private void calculateReferenceOrbit() {
+        MathContext mc = getMathContext();
+        if (refReal.length < math.maxIter + 1) {
+            refReal = new double[math.maxIter + 1];
+            refImag = new double[math.maxIter + 1];
+        }
+        BigDecimal zReal = BigDecimal.ZERO;
+        BigDecimal zImag = BigDecimal.ZERO;
+        BigDecimal two = BigDecimal.valueOf(2);
+        refLength = 0;
+        while (refLength <= math.maxIter) {
+            refReal[refLength] = zReal.doubleValue();
+            refImag[refLength] = zImag.doubleValue();
+            refLength++;
+            if (refReal[refLength - 1] * refReal[refLength - 1] + refImag[refLength - 1] * refImag[refLength - 1] >= 4) {
+                break;
+            }
+            BigDecimal realSqr = zReal.multiply(zReal, mc);
+            BigDecimal imagSqr = zImag.multiply(zImag, mc);
+            zImag = two.multiply(zReal, mc).multiply(zImag, mc).add(refCenterImag, mc);
+            zReal = realSqr.subtract(imagSqr, mc).add(refCenterReal, mc);
+        }
+    }
+
+    /**
+     * finds how many iterations every pixel can skip by approximating
+     * its distance from the reference orbit as A*dc + B*dc^2 + C*dc^3
+     * and stops once the cubic term gets too big compared to the linear one
+     */
+    private void calculateSeries() {
+        //furthest a pixel can be from the center of the screen
+        double maxDelta = Math.hypot(2.5 / math.zoom, 2.0 / math.zoom);
+        double ar = 0, ai = 0, br = 0, bi = 0, cr = 0, ci = 0;
+        skipIterations = 0;
+        aReal = aImag = bReal = bImag = cReal = cImag = 0;
+        for (int n = 0; n < refLength - 1; n++) {
+            double zr = 2 * refReal[n];
+            double zi = 2 * refImag[n];
+            //C = 2ZC + 2AB
+            double nextCr = zr * cr - zi * ci + 2 * (ar * br - ai * bi);
+            double nextCi = zr * ci + zi * cr + 2 * (ar * bi + ai * br);
+            //B = 2ZB + A^2
+            double nextBr = zr * br - zi * bi + (ar * ar - ai * ai);
+            double nextBi = zr * bi + zi * br + 2 * ar * ai;
+            //A = 2ZA + 1
+            double nextAr = zr * ar - zi * ai + 1;
+            double nextAi = zr * ai + zi * ar;
+
+            double linear = Math.hypot(nextAr, nextAi) * maxDelta;
+            double cubic = Math.hypot(nextCr, nextCi) * maxDelta * maxDelta * maxDelta;
+            if (!(cubic <= SERIES_TOLERANCE * linear) || n + 1 >= math.maxIter - 1) {
+                break;
+            }
+            ar = nextAr; ai = nextAi;
+            br = nextBr; bi = nextBi;
+            cr = nextCr; ci = nextCi;
+            skipIterations = n + 1;
+            aReal = ar; aImag = ai;
+            bReal = br; bImag = bi;
+            cReal = cr; cImag = ci;
+        }
+    }
+
+    /**
+     * @return how many iterations every pixel skipped in the last frame
+     */
+    public int getSkipIterations() {
+        return skipIterations;
+    }
+
+    /**
+     * calcualtes the mandelbrot set for the cordinates given relative to the reference orbit
+     * @param cordinate on the canvas, can be between pixels for the anti aliasing samples
+     * @param index of the pixel in the buffers to remember how big z got, -1 for a sample
+     * @return the number of iterations it takes to complete calculation
+     * the same way FractalMath#mandelbrotSet(int, int) counts them
+     */
+    public int mandelbrotSet(double x, double y, int index) {
+        //distance of the pixel from the reference in the middle of the screen
+        double dcReal = minDcReal + x * math.getRealStep();
+        double dcImag = minDcImag + y * math.getImagStep();
+
+        //starts off where the series approximation left off
+        double dcRealSqr = dcReal * dcReal - dcImag * dcImag;
+        double dcImagSqr = 2 * dcReal * dcImag;
+        double dcRealCube = dcRealSqr * dcReal - dcImagSqr * dcImag;
+        double dcImagCube = dcRealSqr * dcImag + dcImagSqr * dcReal;
+        double dzReal = aReal * dcReal - aImag * dcImag + bReal * dcRealSqr - bImag * dcImagSqr + cReal * dcRealCube - cImag * dcImagCube;
+        double dzImag = aReal * dcImag + aImag * dcReal + bReal * dcImagSqr + bImag * dcRealSqr + cReal * dcImagCube + cImag * dcRealCube;
+
+        int n = skipIterations;
+        int ref = skipIterations;
+        while (true) {
+            double zReal = refReal[ref] + dzReal;
+            double zImag = refImag[ref] + dzImag;
+            double magnitude = zReal * zReal + zImag * zImag;
+            if (magnitude >= 4) {
+                //past the bailout the point doesnt need to be any more precise than a double
+                return math.saveEscape(index, zReal, zImag, math.centerReal + dcReal, math.centerImag + dcImag, n + 1);
+            }
+            if (n + 1 >= math.maxIter) {
+                return math.maxIter;
+            }
+            //the pixel got closer to zero than to the reference so its delta lost all its precision,
+            //restart the reference from the beginning using the full value as the new delta
+            boolean glitched = magnitude < dzReal * dzReal + dzImag * dzImag;
+            if (glitched || ref == refLength - 1) {
+                if (glitched) {
+                    glitchCount.increment();
+                }
+                dzReal = zReal;
+                dzImag = zImag;
+                ref = 0;
+            }
+            //dz = 2*Z*dz + dz^2 + dc
+            double zr = refReal[ref];
+            double zi = refImag[ref];
+            double newReal = 2 * (zr * dzReal - zi * dzImag) + dzReal * dzReal - dzImag * dzImag + dcReal;
+            double newImag = 2 * (zr * dzImag + zi * dzReal) + 2 * dzReal * dzImag + dcImag;
+            dzReal = newReal;
+            dzImag = newImag;
+            ref++;
+            n++;
+        }
+    }
+
+    /**
+     * mandelbrotSet but also keeping track of the derivative of the orbit by the point
+     * so the distance estimate can tell how big a disc around the pixel has the same iteration count,
+     * the derivative starts where the series left off (A + 2B*dc + 3C*dc^2) and then goes dz = 2*z*dz + 1
+     * with z the whole orbit and not just its distance from the reference
+     * @param cordinate on the canvas
+     * @param estimate gets the iteration count and the radius of the disc
+     * @see FractalDistanceEstimate#exterior(double, double, double, double, double, double, boolean, FractalDistanceEstimate.Estimate)
+     */
+    public void estimate(int x, int y, FractalDistanceEstimate.Estimate estimate) {
+        double dcReal = minDcReal + x * math.getRealStep();
+        double dcImag = minDcImag + y * math.getImagStep();
+
+        double dcRealSqr = dcReal * dcReal - dcImag * dcImag;
+        double dcImagSqr = 2 * dcReal * dcImag;
+        double dcRealCube = dcRealSqr * dcReal - dcImagSqr * dcImag;
+        double dcImagCube = dcRealSqr * dcImag + dcImagSqr * dcReal;
+        double dzReal = aReal * dcReal - aImag * dcImag + bReal * dcRealSqr - bImag * dcImagSqr + cReal * dcRealCube - cImag * dcImagCube;
+        double dzImag = aReal * dcImag + aImag * dcReal + bReal * dcImagSqr + bImag * dcRealSqr + cReal * dcImagCube + cImag * dcRealCube;
+        double derReal = aReal + 2 * (bReal * dcReal - bImag * dcImag) + 3 * (cReal * dcRealSqr - cImag * dcImagSqr);
+        double derImag = aImag + 2 * (bReal * dcImag + bImag * dcReal) + 3 * (cReal * dcImagSqr + cImag * dcRealSqr);
+
+        int n = skipIterations;
+        int ref = skipIterations;
+        while (true) {
+            double zReal = refReal[ref] + dzReal;
+            double zImag = refImag[ref] + dzImag;
+            double magnitude = zReal * zReal + zImag * zImag;
+            if (magnitude >= 4) {
+                estimate.iterations = n + 1;
+                //far enough out that the center of the screen is close enough to the point
+                FractalDistanceEstimate.exterior(zReal, zImag, derReal, derImag,
+                    math.centerReal + dcReal, math.centerImag + dcImag, true, estimate);
+                return;
+            }
+            if (n + 1 >= math.maxIter) {
+                estimate.iterations = math.maxIter;
+                return;
+            }
+            double temp = 2 * (zReal * derReal - zImag * derImag) + 1;
+            derImag = 2 * (zReal * derImag + zImag * derReal);
+            derReal = temp;
+            boolean glitched = magnitude < dzReal * dzReal + dzImag * dzImag;
+            if (glitched || ref == refLength - 1) {
+                dzReal = zReal;
+                dzImag = zImag;
+                ref = 0;
+            }
+            double zr = refReal[ref];
+            double zi = refImag[ref];
+            double newReal = 2 * (zr * dzReal - zi * dzImag) + dzReal * dzReal - dzImag * dzImag + dcReal;
+            double newImag = 2 * (zr * dzImag + zi * dzReal) + 2 * dzReal * dzImag + dcImag;
+            dzReal = newReal;
+            dzImag = newImag;
+            ref++;
+            n++;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Desc: whatever shows the fractal while it gets rendered, the render core
+ * only ever hands it finished ARGB pixels so it never has to know about windows
+ * and the same engine can run on a server with no screen at all
+ */
+package FractalExplorer.scr;
+
+public interface FractalDisplay {
+
+    /**
+     * @return the pixels of the image that isnt on screen so colorData() can write the next
+     * frame straight into it, or null if the display has no pixels of its own
+     * and wants them handed to showPixels instead
+     * @see FractalMath#colorData()
+     */
+    int[] getBackBuffer();
+
+    /**
+     * shows the colored pixels of the fractal, if they are the back buffer
+     * it only has to swap it to the front instead of copying anything
+     * @param argb one color per pixel a row at a time
+     * @param width width of the canvas
+     * @param height height of the canvas
+     * @see FractalMath#colorData()
+     */
+    void showPixels(int[] argb, int width, int height);
+
+    /**
+     * shows the pixels that were handed over last
+     */
+    void repaint();
+
+    /**
+     * @return true if every step of the edge tracer should be shown as it happens
+     */
+    boolean isAnimating();
+
+    /**
+     * called once an animated render has finished
+     */
+    void stopAnimating();
+}
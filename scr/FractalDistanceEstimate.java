@@ -0,0 +1,417 @@
+/**
+ * Desc: skips whole discs of pixels by estimating how far a pixel is from the edge of the fractal,
+ * the orbit of a pixel also keeps track of its derivative and that gives a distance the
+ * edge is guaranteed to be further away than (koebe's quarter theorem) so every pixel closer
+ * than that is on the same side of the edge, discs inside the set all take the iteration limit
+ * and get filled in with it, discs outside it only get filled as far as the iteration count
+ * provably cant change (harnack's inequality on the potential of the pixel in the middle of the disc),
+ * the proven discs are small and never reach the edges of the colors where the tracers do their work
+ * so it only pays off when a minibrot fills a good part of the screen at a high iteration limit,
+ * there the inside discs save the tracer iterating the whole inside of the minibrot and its bulbs,
+ * with the continuous colors only the inside gets discs since every escaped pixel needs its own escape fraction
+ */
+package FractalExplorer.scr;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class FractalDistanceEstimate {
+
+    //distance in pixels between the pixels the discs are centered on,
+    //starting with the coarsest grid and halving it down to the finest
+    private static final int FIRST_GRID = 32;
+    private static final int GRID = 8;
+    //the orbit keeps going after it escapes untill its this big so the estimate is accurate
+    private static final double ESCAPE_RADIUS_SQR = 1e20;
+    private static final int MAX_EXTRA_ITERATIONS = 64;
+    //steps to find the exact point of the cycle an orbit inside the set fell into
+    private static final int NEWTON_STEPS = 16;
+    //a disc smaller than this doesnt cover any pixel besides the one in the middle
+    private static final double MIN_RADIUS = 1.5;
+    private static final double LOG_2 = Math.log(2);
+
+    private FractalMath math;
+    private FractalEdgeTrace tracer;
+
+    //radius in pixels of the disc around every pixel of the grid being filled, 0 if it doesnt have one
+    private double[] radius = new double[0];
+    private int columns;
+    private int rows;
+    //how many discs got filled in the last frame
+    public long lastDiscCount;
+    //how many pixels went through the distance estimate kernels in the last frame
+    private LongAdder estimated = new LongAdder();
+    private ThreadLocal<Estimate> estimates = ThreadLocal.withInitial(Estimate::new);
+
+    public FractalDistanceEstimate(FractalMath math, FractalEdgeTrace tracer) {
+        this.math = math;
+        this.tracer = tracer;
+    }
+
+    /**
+     * @return true if there is a distance estimate kernel for the current precision and fractal,
+     * double-doubles dont have one
+     */
+    public boolean isAvailable() {
+        return math.precision <= FractalMath.PRECISION_DOUBLE || math.getDeepZoom().isActive();
+    }
+
+    /**
+     * calculates a grid of pixels with the normal kernels and the distance estimate kernels,
+     * then fills every pixel inside the disc of a grid pixel with its iteration count,
+     * coarse grids first so the pixels of the finer ones that already got covered are skipped,
+     * runs before the tracer which skips everything it filled
+     * @return how many pixels got filled in without being calculated
+     * @see FractalEdgeTrace#calculateEdgeFractal()
+     */
+    public long fillDiscs(){
+        estimated.reset();
+        lastDiscCount = 0;
+        if(!isAvailable()){
+            return 0;
+        }
+        long filled = 0;
+        for(int spacing = FIRST_GRID; spacing >= GRID && !tracer.cancelled; spacing /= 2){
+            long discs = placeDiscs(spacing);
+            lastDiscCount += discs;
+            if(discs > 0 && !tracer.cancelled){
+                filled += fillGrid(spacing);
+            }
+        }
+        return tracer.cancelled ? 0 : filled;
+    }
+
+    /**
+     * calculates the pixels of a grid that arent known yet with the normal kernels
+     * and the distance estimate kernels, a row of the grid per task
+     * @param spacing distance in pixels between the pixels of the grid, they are at spacing / 2 + k * spacing
+     * @return how many of them got a disc
+     */
+    private long placeDiscs(int spacing){
+        columns = (math.width - spacing / 2 + spacing - 1) / spacing;
+        rows = (math.height - spacing / 2 + spacing - 1) / spacing;
+        if(radius.length < columns * rows){
+            radius = new double[columns * rows];
+        }
+        double pixelSize = math.getPixelSize();
+        double maxRadius = Math.max(math.width, math.height);
+        LongAdder discs = new LongAdder();
+        tracer.forEachRow(y -> {
+            if(y % spacing != spacing / 2 || tracer.cancelled){
+                return;
+            }
+            long startTime = System.nanoTime();
+            int gridY = y / spacing;
+            Estimate estimate = estimates.get();
+            int count = 0;
+            int kernelCalls = 0;
+            for(int gridX = 0; gridX < columns; gridX++){
+                int x = gridX * spacing + spacing / 2;
+                radius[gridY * columns + gridX] = 0;
+                if(math.isKnown(x, y)){
+                    continue;
+                }
+                //the normal kernel so the pixel in the middle is exactly what it would be without discs
+                int iter = math.drawFractal(x, y);
+                kernelCalls++;
+                if(!math.canFill(iter) || !estimate(x, y, estimate) || estimate.iterations != iter){
+                    continue;
+                }
+                double disc = Math.min(estimate.radius / pixelSize, maxRadius);
+                if(disc >= MIN_RADIUS){
+                    radius[gridY * columns + gridX] = disc;
+                    count++;
+                }
+            }
+            estimated.add(kernelCalls);
+            discs.add(count);
+            tracer.addBusyTime(System.nanoTime() - startTime);
+        });
+        return discs.sum();
+    }
+
+    /**
+     * fills every pixel that isnt known yet inside the discs of a grid
+     * a row of the screen per task so no two threads ever write the same pixel
+     * @param spacing of the grid the discs were placed on
+     * @return how many pixels got filled
+     */
+    private long fillGrid(int spacing){
+        double largest = 0;
+        for(int i = 0; i < columns * rows; i++){
+            largest = Math.max(largest, radius[i]);
+        }
+        int reach = (int) Math.ceil(largest);
+        LongAdder filled = new LongAdder();
+        tracer.forEachRow(y -> {
+            if(tracer.cancelled){
+                return;
+            }
+            long startTime = System.nanoTime();
+            int count = 0;
+            //only the rows of the grid close enough to reach this row
+            int firstRow = Math.max(0, (y - reach - spacing / 2 + spacing - 1) / spacing);
+            int lastRow = Math.min(rows - 1, (y + reach - spacing / 2) / spacing);
+            for(int gridY = firstRow; gridY <= lastRow; gridY++){
+                int centerY = gridY * spacing + spacing / 2;
+                int dy = y - centerY;
+                for(int gridX = 0; gridX < columns; gridX++){
+                    double disc = radius[gridY * columns + gridX];
+                    if(disc == 0 || dy * dy > disc * disc){
+                        continue;
+                    }
+                    int centerX = gridX * spacing + spacing / 2;
+                    int half = (int) Math.sqrt(disc * disc - dy * dy);
+                    int iter = math.getIterations(centerX, centerY);
+                    for(int x = Math.max(0, centerX - half); x <= Math.min(math.width - 1, centerX + half); x++){
+                        if(!math.isKnown(x, y)){
+                            math.fillDiscPixel(x, y, iter);
+                            count++;
+                        }
+                    }
+                }
+            }
+            filled.add(count);
+            tracer.addBusyTime(System.nanoTime() - startTime);
+        });
+        return filled.sum();
+    }
+
+    /**
+     * @return how many pixels went through the distance estimate kernels in the last frame
+     */
+    public long getEstimated() {
+        return estimated.sum();
+    }
+
+    /**
+     * runs the distance estimate kernel that goes with the current precision and fractal
+     * @param cords on the canvas
+     * @param estimate gets the iteration count and the radius of the disc
+     * @return false if the pixel cant have a disc
+     */
+    private boolean estimate(int x, int y, Estimate estimate){
+        estimate.radius = 0;
+        if(math.getDeepZoom().isActive()){
+            math.getDeepZoom().estimate(x, y, estimate);
+        } else if(math.seedReal == 0 && math.seedImag == 0){
+            mandelbrot(math.xToReal(x), math.yToImag(y), estimate);
+        } else {
+            julia(math.xToReal(x), math.yToImag(y), estimate);
+        }
+        return estimate.radius > 0;
+    }
+
+    /**
+     * the mandelbrot kernel counting iterations the same way FractalMath#mandelbrotSet(int, int) does
+     * while also keeping track of the derivative of the orbit by the point (dz = 2 * z * dz + 1)
+     * @param point on the fractal
+     * @param estimate gets the iteration count and the radius of the disc
+     */
+    private void mandelbrot(double real, double imag, Estimate estimate){
+        double zReal = 0;
+        double zImag = 0;
+        double dzReal = 0;
+        double dzImag = 0;
+        double magnitude = 0;
+        double tolerance = math.getPixelSize() / 10000;
+        double checkReal = 0;
+        double checkImag = 0;
+        int checkLength = 1;
+        int sinceCheck = 0;
+        int i = 1;
+        while(magnitude < 4 && i < math.maxIter){
+            double temp = 2 * (zReal * dzReal - zImag * dzImag) + 1;
+            dzImag = 2 * (zReal * dzImag + zImag * dzReal);
+            dzReal = temp;
+            temp = zReal * zReal - zImag * zImag + real;
+            zImag = 2 * zReal * zImag + imag;
+            zReal = temp;
+            i++;
+            magnitude = zReal * zReal + zImag * zImag;
+
+            if(Math.abs(zReal - checkReal) < tolerance && Math.abs(zImag - checkImag) < tolerance){
+                estimate.iterations = math.maxIter;
+                interior(real, imag, zReal, zImag, sinceCheck + 1, estimate);
+                return;
+            }
+            sinceCheck++;
+            if(sinceCheck == checkLength){
+                checkReal = zReal;
+                checkImag = zImag;
+                checkLength *= 2;
+                sinceCheck = 0;
+            }
+        }
+        estimate.iterations = i;
+        if(i < math.maxIter){
+            exterior(zReal, zImag, dzReal, dzImag, real, imag, true, estimate);
+        }
+    }
+
+    /**
+     * the julia kernel counting iterations the same way FractalMath#juliaSet(int, int) does
+     * while also keeping track of the derivative of the orbit by the starting point (dz = 2 * z * dz),
+     * only the outside gets discs since the inside has no distance estimate to go with it
+     * @param z point on the fractal
+     * @param estimate gets the iteration count and the radius of the disc
+     */
+    private void julia(double zReal, double zImag, Estimate estimate){
+        double dzReal = 1;
+        double dzImag = 0;
+        double magnitude = zReal * zReal + zImag * zImag;
+        int i = 1;
+        while(magnitude < 4 && i < math.maxIter){
+            double temp = 2 * (zReal * dzReal - zImag * dzImag);
+            dzImag = 2 * (zReal * dzImag + zImag * dzReal);
+            dzReal = temp;
+            temp = zReal * zReal - zImag * zImag + math.seedReal;
+            zImag = 2 * zReal * zImag + math.seedImag;
+            zReal = temp;
+            i++;
+            magnitude = zReal * zReal + zImag * zImag;
+            if(math.inAttractingCycle(zReal, zImag)){
+                estimate.iterations = math.maxIter;
+                return;
+            }
+        }
+        estimate.iterations = i;
+        if(i < math.maxIter && i > 1){
+            exterior(zReal, zImag, dzReal, dzImag, math.seedReal, math.seedImag, false, estimate);
+        }
+    }
+
+    /**
+     * keeps iterating an orbit that just escaped untill its big enough for the estimate to be accurate
+     * and works out how far from the pixel its iteration count is guaranteed not to change,
+     * the edge is at least |z| ln|z| / (2 |dz|) away so the potential G is positive and harmonic in that disc
+     * and a pixel t of the way to the edge of it has between (1 - t) / (1 + t) and (1 + t) / (1 - t)
+     * times the potential of the pixel in the middle (harnack), once an orbit is past 2 the potential
+     * scaled up to that iteration is ln|z| give or take E = -ln(1 - |c| / 4), so a pixel escapes on the same
+     * iteration n as long as 2^n G stays above (ln(4 + |c|) + E) / 2 and 2^(n-1) G stays below ln 2 - E
+     * @param z where the orbit escaped to
+     * @param dz its derivative
+     * @param c the point or seed added every iteration
+     * @param mandelbrot true if c is the point itself so it changes across the disc
+     * @param estimate gets the radius of the disc
+     */
+    static void exterior(double zReal, double zImag, double dzReal, double dzImag,
+            double cReal, double cImag, boolean mandelbrot, Estimate estimate){
+        double constant = mandelbrot ? 1 : 0;
+        int extra = 0;
+        while(extra < MAX_EXTRA_ITERATIONS && zReal * zReal + zImag * zImag < ESCAPE_RADIUS_SQR){
+            double temp = 2 * (zReal * dzReal - zImag * dzImag) + constant;
+            dzImag = 2 * (zReal * dzImag + zImag * dzReal);
+            dzReal = temp;
+            temp = zReal * zReal - zImag * zImag + cReal;
+            zImag = 2 * zReal * zImag + cImag;
+            zReal = temp;
+            extra++;
+        }
+        double size = Math.hypot(zReal, zImag);
+        double bound = size * Math.log(size) / (2 * Math.hypot(dzReal, dzImag));
+        //2^n G of the pixel in the middle where n is the iteration it escaped on
+        double potential = Math.log(size) / Math.pow(2, extra);
+        //biggest c anywhere in the disc
+        double cSize = Math.hypot(cReal, cImag) + (mandelbrot ? bound : 0);
+        double error = -Math.log(1 - cSize / 4);
+        //how many times bigger and smaller the potential can get before the iteration count changes
+        double ratio = Math.min(potential / ((Math.log(4 + cSize) + error) / 2), 2 * (LOG_2 - error) / potential);
+        //not above 1 (or NaN) when the count is too close to changing or c is too big for the error to be bounded
+        if(!(ratio > 1)){
+            return;
+        }
+        double radius = bound * (ratio - 1) / (ratio + 1);
+        estimate.radius = radius < Double.MAX_VALUE ? radius : 0;
+    }
+
+    /**
+     * finds the exact point of the cycle an orbit inside the mandelbrot set fell into with newton's method
+     * and the derivatives of the cycle by z and by the point, the whole disc of
+     * (1 - |dz|^2) / (4 |dcdz + dzdz * dc / (1 - dz)|) around the point is inside the set
+     * @param point on the fractal
+     * @param z point of the orbit that came back to where it was
+     * @param period how many iterations the cycle took to come back, can be a multiple of the real period
+     * @param estimate gets the radius of the disc
+     */
+    private static void interior(double real, double imag, double zReal, double zImag, int period, Estimate estimate){
+        for(int step = 0; step < NEWTON_STEPS; step++){
+            double wReal = zReal;
+            double wImag = zImag;
+            double dReal = 1;
+            double dImag = 0;
+            for(int k = 0; k < period; k++){
+                double temp = 2 * (wReal * dReal - wImag * dImag);
+                dImag = 2 * (wReal * dImag + wImag * dReal);
+                dReal = temp;
+                temp = wReal * wReal - wImag * wImag + real;
+                wImag = 2 * wReal * wImag + imag;
+                wReal = temp;
+            }
+            //(w - z) / (dz - 1)
+            double gReal = wReal - zReal;
+            double gImag = wImag - zImag;
+            double hReal = dReal - 1;
+            double hImag = dImag;
+            double denominator = hReal * hReal + hImag * hImag;
+            if(denominator == 0){
+                return;
+            }
+            double stepReal = (gReal * hReal + gImag * hImag) / denominator;
+            double stepImag = (gImag * hReal - gReal * hImag) / denominator;
+            zReal -= stepReal;
+            zImag -= stepImag;
+            if(stepReal * stepReal + stepImag * stepImag < 1e-30 * (1 + zReal * zReal + zImag * zImag)){
+                break;
+            }
+        }
+
+        double wReal = zReal;
+        double wImag = zImag;
+        double dzReal = 1, dzImag = 0;
+        double dcReal = 0, dcImag = 0;
+        double dzdzReal = 0, dzdzImag = 0;
+        double dcdzReal = 0, dcdzImag = 0;
+        for(int k = 0; k < period; k++){
+            double nextDcdzReal = 2 * (dcReal * dzReal - dcImag * dzImag + wReal * dcdzReal - wImag * dcdzImag);
+            double nextDcdzImag = 2 * (dcReal * dzImag + dcImag * dzReal + wReal * dcdzImag + wImag * dcdzReal);
+            double nextDzdzReal = 2 * (dzReal * dzReal - dzImag * dzImag + wReal * dzdzReal - wImag * dzdzImag);
+            double nextDzdzImag = 2 * (2 * dzReal * dzImag + wReal * dzdzImag + wImag * dzdzReal);
+            double nextDcReal = 2 * (wReal * dcReal - wImag * dcImag) + 1;
+            double nextDcImag = 2 * (wReal * dcImag + wImag * dcReal);
+            double nextDzReal = 2 * (wReal * dzReal - wImag * dzImag);
+            double nextDzImag = 2 * (wReal * dzImag + wImag * dzReal);
+            double temp = wReal * wReal - wImag * wImag + real;
+            wImag = 2 * wReal * wImag + imag;
+            wReal = temp;
+            dcdzReal = nextDcdzReal; dcdzImag = nextDcdzImag;
+            dzdzReal = nextDzdzReal; dzdzImag = nextDzdzImag;
+            dcReal = nextDcReal; dcImag = nextDcImag;
+            dzReal = nextDzReal; dzImag = nextDzImag;
+        }
+        double multiplier = dzReal * dzReal + dzImag * dzImag;
+        //newton didnt land on an attracting cycle
+        if(!(multiplier < 1) || Math.hypot(wReal - zReal, wImag - zImag) > 1e-9 * (1 + Math.hypot(zReal, zImag))){
+            return;
+        }
+        //dc / (1 - dz)
+        double oneMinusReal = 1 - dzReal;
+        double oneMinusImag = -dzImag;
+        double denominator = oneMinusReal * oneMinusReal + oneMinusImag * oneMinusImag;
+        double qReal = (dcReal * oneMinusReal + dcImag * oneMinusImag) / denominator;
+        double qImag = (dcImag * oneMinusReal - dcReal * oneMinusImag) / denominator;
+        double bottomReal = dcdzReal + dzdzReal * qReal - dzdzImag * qImag;
+        double bottomImag = dcdzImag + dzdzReal * qImag + dzdzImag * qReal;
+        double radius = (1 - multiplier) / (4 * Math.hypot(bottomReal, bottomImag));
+        estimate.radius = radius > 0 && radius < Double.MAX_VALUE ? radius : 0;
+    }
+
+    /**
+     * what a distance estimate kernel found out about a pixel
+     */
+    public static class Estimate {
+        //iteration count the way the normal kernels count it
+        public int iterations;
+        //how far around the pixel everything has the same iteration count, on the fractal and not in pixels
+        public double radius;
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Desc: calculates the fractal with double-double numbers, a pair of doubles
+ * where the second one holds the rounding error of the first (about 106 bits)
+ * used for zooms that are too deep for doubles but not deep enough
+ * to need the perturbation engine
+ */
+package FractalExplorer.scr;
+
+import java.math.BigDecimal;
+
+public class FractalDoubleDouble {
+
+    private FractalMath math;
+
+    //top left corner of the screen split into its high and low parts
+    private double minRealHi, minRealLo;
+    private double minImagHi, minImagLo;
+    //size of a pixel on the fractal
+    private double realStep;
+    private double imagStep;
+
+    /**
+     * @param math the math of the fractal being drawn
+     */
+    public FractalDoubleDouble(FractalMath math) {
+        this.math = math;
+    }
+
+    /**
+     * splits the precise top left corner into double-doubles,
+     * has to be called before the threads start drawing pixels
+     * @param minReal precise real part of the left edge
+     * @param minImag precise imaginary part of the top edge
+     * @see FractalMath#getPreciseMinReal()
+     * @see FractalMath#edgeDetectionFractal()
+     */
+    public void prepare(BigDecimal minReal, BigDecimal minImag) {
+        minRealHi = minReal.doubleValue();
+        minRealLo = minReal.subtract(new BigDecimal(minRealHi)).doubleValue();
+        minImagHi = minImag.doubleValue();
+        minImagLo = minImag.subtract(new BigDecimal(minImagHi)).doubleValue();
+        realStep = math.getRealStep();
+        imagStep = math.getImagStep();
+    }
+
+    /**
+     * calcualtes the mandelbrot set for the cordinates given
+     * @param cordinate on the canvas, can be between pixels for the anti aliasing samples
+     * @param index of the pixel in the buffers to remember how big z got, -1 for a sample
+     * @return the number of iterations it takes to complete calculation
+     * @see FractalMath#mandelbrotSet(int, int)
+     */
+    public int mandelbrotSet(double x, double y, int index) {
+        //corner + offset of the pixel from the corner, the offset itself fits in a double
+        double offset = x * realStep;
+        double cRealHi = twoSumHi(minRealHi, offset);
+        double cRealLo = twoSumLo(minRealHi, offset, cRealHi) + minRealLo;
+        offset = y * imagStep;
+        double cImagHi = twoSumHi(minImagHi, offset);
+        double cImagLo = twoSumLo(minImagHi, offset, cImagHi) + minImagLo;
+
+        return iterate(index, 0, 0, 0, 0, cRealHi, cRealLo, cImagHi, cImagLo);
+    }
+
+    /**
+    * Calculates the Julia set for the given coordinates.
+    * @param y cordinates on the canvas
+    * @param index of the pixel in the buffers to remember how big z got, -1 for a sample
+    * @return The number of iterations it takes to complete the calculation
+    * @see FractalMath#juliaSet(int, int)
+    */
+    public int juliaSet(double x, double y, int index) {
+        double offset = x * realStep;
+        double zRealHi = twoSumHi(minRealHi, offset);
+        double zRealLo = twoSumLo(minRealHi, offset, zRealHi) + minRealLo;
+        offset = y * imagStep;
+        double zImagHi = twoSumHi(minImagHi, offset);
+        double zImagLo = twoSumLo(minImagHi, offset, zImagHi) + minImagLo;
+
+        return iterate(index, zRealHi, zRealLo, zImagHi, zImagLo, math.seedReal, 0, math.seedImag, 0);
+    }
+
+    /**
+     * iterates z = z^2 + c with double-doubles
+     * counts the iterations the same way as the double kernels
+     * @see FractalMath#saveEscape(int, double, double, double, double, int)
+     */
+    private int iterate(int index, double zRealHi, double zRealLo, double zImagHi, double zImagLo,
+            double cRealHi, double cRealLo, double cImagHi, double cImagLo) {
+        int i = 1;
+        int maxIter = math.maxIter;
+        while (i < maxIter) {
+            //z real squared
+            double p = zRealHi * zRealHi;
+            double e = Math.fma(zRealHi, zRealHi, -p) + 2 * zRealHi * zRealLo;
+            double realSqrHi = p + e;
+            double realSqrLo = e - (realSqrHi - p);
+            //z imag squared
+            p = zImagHi * zImagHi;
+            e = Math.fma(zImagHi, zImagHi, -p) + 2 * zImagHi * zImagLo;
+            double imagSqrHi = p + e;
+            double imagSqrLo = e - (imagSqrHi - p);
+
+            //the high parts are plenty to know if it escaped
+            if (realSqrHi + imagSqrHi >= 4) {
+                //past the bailout the high parts are plenty for the escape fraction too
+                return math.saveEscape(index, zRealHi, zImagHi, cRealHi, cImagHi, i);
+            }
+
+            //z real * z imag * 2
+            p = zRealHi * zImagHi;
+            e = Math.fma(zRealHi, zImagHi, -p) + (zRealHi * zImagLo + zRealLo * zImagHi);
+            double crossHi = 2 * (p + e);
+            double crossLo = 2 * (e - ((p + e) - p));
+
+            //z imag = 2 * z real * z imag + c imag
+            zImagHi = twoSumHi(crossHi, cImagHi);
+            e = twoSumLo(crossHi, cImagHi, zImagHi) + crossLo + cImagLo;
+            p = zImagHi;
+            zImagHi = p + e;
+            zImagLo = e - (zImagHi - p);
+
+            //z real = z real squared - z imag squared + c real
+            double diffHi = twoSumHi(realSqrHi, -imagSqrHi);
+            double diffLo = twoSumLo(realSqrHi, -imagSqrHi, diffHi) + realSqrLo - imagSqrLo;
+            zRealHi = twoSumHi(diffHi, cRealHi);
+            e = twoSumLo(diffHi, cRealHi, zRealHi) + diffLo + cRealLo;
+            p = zRealHi;
+            zRealHi = p + e;
+            zRealLo = e - (zRealHi - p);
+
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return the rounded sum of a and b
+     */
+    private static double twoSumHi(double a, double b) {
+        return a + b;
+    }
+
+    /**
+     * @param sum the rounded sum of a and b
+     * @return the rounding error that got lost in the sum of a and b
+     */
+    private static double twoSumLo(double a, double b, double sum) {
+        double v = sum - a;
+        return (a - (sum - v)) + (b - v);
+    }
+}
@@ -6,143 +6,841 @@
  */
 package FractalExplorer.scr;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
 
 public class FractalEdgeTrace {
 
+    //one pool that lives as long as the program so dragging the fractal around
+    //doesnt have to create and kill threads every single frame
+    private static final ForkJoinPool renderPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    //rows of the screen each thread gets when the whole screen is looped over
+    private static final int ROW_BAND = 16;
+    //deepest a rectangle can get split, a 2^31 pixel wide screen runs out of pixels before that
+    private static final int MAX_DEPTH = 32;
+    //width and height of the cells the cost of a frame gets measured in,
+    //sectors always start and end on the edge of a cell
+    private static final int COST_CELL = 16;
+    //how many sectors each thread would get if the work was spread out perfectly
+    private static final int SECTORS_PER_THREAD = 8;
+    private static final int MAX_SECTORS = 256;
+    //the screen gets split into at least this many sectors across and down
+    //since the tracer misses more islands inside a bigger sector
+    private static final int MIN_SECTORS_ACROSS = 8;
+    //rectangles thinner than this get their inside calculated instead of split
+    private static final int MIN_SPLIT = 6;
+    //milliseconds between the thread that started an animated frame showing it
+    //and how long the workers wait after every step so it can be watched
+    private static final long ANIMATION_TICK = 16;
+    private static final long ANIMATION_STEP = 1;
+
     private FractalMath math;
-    private int[] data;
+    //follows the edges pixel by pixel when the boundary engine is picked
+    private FractalBoundaryTrace boundaryTrace;
+    //fills the discs the distance estimate finds before either engine starts
+    private FractalDistanceEstimate distanceEstimate;
+
+    //stats of the last frame that was calculated
+    public long lastFrameTime;     //nanoseconds
+    public long lastStealCount;    //how many tasks got stolen by an idle thread
+    public double lastIdlePercent; //how much of the pool sat around doing nothing
+    //time the threads spent actually calculating during the current frame
+    private LongAdder busyTime = new LongAdder();
+    //the same split up by thread, every thread only ever adds to its own slot
+    private CopyOnWriteArrayList<long[]> threadBusyTimes = new CopyOnWriteArrayList<>();
+    private ThreadLocal<long[]> threadBusyTime = ThreadLocal.withInitial(() -> {
+        long[] slot = new long[1];
+        threadBusyTimes.add(slot);
+        return slot;
+    });
+    //how many rectangles got checked at every depth of splitting in the current frame
+    private AtomicLongArray depthCounts = new AtomicLongArray(MAX_DEPTH);
+    //pixels filled in without being calculated in the current frame
+    private LongAdder pixelsFilled = new LongAdder();
+
+    //numbers of the last frame for JMX
+    public final FractalRenderStats stats = new FractalRenderStats();
 
-    public FractalEdgeTrace(FractalMath math, int[] data) {
+    //how much work every cell of the last finished frame took, null before the first one
+    private long[] costMap;
+    //the cells of the frame being calculated, filled in by the workers as they finish their sectors
+    //and swapped with the cost map once the frame is done
+    private long[] nextCostMap = new long[0];
+    private int costColumns;
+    private int costRows;
+    //where the top left of the map is on the fractal and how big its pixels are
+    //so the next frame can find the cost of the same spot after its been dragged or zoomed
+    private double costReal;
+    private double costImag;
+    private double costRealStep;
+    private double costImagStep;
+    public int lastSectorCount;
+
+    //set when the pass being drawn is out of date and should stop as soon as possible
+    public volatile boolean cancelled;
+    //true while the workers of an animated frame have the pool to themselves
+    private volatile boolean animating;
+
+    public FractalEdgeTrace(FractalMath math) {
         this.math = math;
-        this.data = data;
+        this.boundaryTrace = new FractalBoundaryTrace(math, this);
+        this.distanceEstimate = new FractalDistanceEstimate(math, this);
     }
 
     /**
-     * generates 64 rectangles around the screen 
-     * in order to maximize its ability to locate the edges
-     * @param numThreads number of threads to distribute load
+     * splits the whole screen into sectors using how much work every part of
+     * the last frame took so the expensive parts are cut up finer and the cheap ones
+     * stay big, the threads of the render pool then take the sectors most expensive first
+     * so the slow ones dont end up running on their own at the end of the frame,
+     * each sector gets split up further by the tracer and idle threads steal from each other,
+     * with the boundary engine every sector is a tile whose edges get followed on one thread,
+     * with distance estimation on the discs it proves are all the same get filled in first
      * @see this{@link #renderRectangle(int, int, int, int)}
+     * @see FractalDistanceEstimate#fillDiscs()
+     * @see this{@link #renderTile(Sector)}
+     * @see this{@link #planSectors()}
      */
-    public void calculateEdgeFractal(int numThreads){
-        int sectorNum = 8;
-        int sectorWidth = (math.width/sectorNum);
-        int sectorHeight = (math.height/sectorNum);
-        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+    public void calculateEdgeFractal(){
+        List<Sector> sectors = planSectors();
+        lastSectorCount = sectors.size();
+        int columns = (math.width + COST_CELL - 1) / COST_CELL;
+        int rows = (math.height + COST_CELL - 1) / COST_CELL;
+        if (nextCostMap.length != columns * rows) {
+            nextCostMap = new long[columns * rows];
+        }
+        long[] costs = nextCostMap;
+        AtomicInteger nextSector = new AtomicInteger();
+        List<ForkJoinTask<?>> workers = new ArrayList<>();
+        for (int i = 0; i < renderPool.getParallelism(); i++) {
+            workers.add(ForkJoinTask.adapt(() -> {
+                int next;
+                while ((next = nextSector.getAndIncrement()) < sectors.size()) {
+                    Sector sector = sectors.get(next);
+                    if(math.engine == FractalMath.ENGINE_BOUNDARY){
+                        renderTile(sector);
+                    } else {
+                        renderRectangle(sector.x, sector.y, sector.width, sector.height, 0);
+                    }
+                    recordSectorCost(sector, costs, columns);
+                }
+            }));
+        }
+
+        FractalRenderEvents.FrameEvent event = new FractalRenderEvents.FrameEvent();
+        event.begin();
+        long stealsBefore = renderPool.getStealCount();
+        busyTime.reset();
+        //the pool is idle between frames so nothing is adding to these right now
+        for (long[] slot : threadBusyTimes) {
+            slot[0] = 0;
+        }
+        for (int depth = 0; depth < MAX_DEPTH; depth++) {
+            depthCounts.set(depth, 0);
+        }
+        pixelsFilled.reset();
+        long startTime = System.nanoTime();
+
+        if(math.useDistanceEstimation && !cancelled){
+            pixelsFilled.add(distanceEstimate.fillDiscs());
+        }
+
+        //waits for all the sectors to be finnished
+        runWorkers(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(workers)));
 
-        for (int i = 0; i < sectorNum*sectorNum; i++) {
-            final int startX = i / sectorNum * sectorWidth;
-            final int startY = i % sectorNum * sectorHeight;
-            //assigns workload to the threads
-            executor.execute(() -> renderRectangle(startX, startY, sectorWidth, sectorHeight));
-            //renderRectangle(startX, startY, sectorWidth, sectorHeight);
+        lastFrameTime = System.nanoTime() - startTime;
+        lastStealCount = renderPool.getStealCount() - stealsBefore;
+        double availableTime = (double) lastFrameTime * renderPool.getParallelism();
+        lastIdlePercent = Math.max(0, 100 * (1 - busyTime.sum() / availableTime));
+        recordFrame(event);
+        //a cancelled frame is missing pixels so it would make a bad guess
+        if(!cancelled){
+            swapCostMap(columns, rows);
         }
 
+        if(math.display != null){
+            math.display.stopAnimating();
+        }
 
-        //waits for all the threads to be finnished
-        executor.shutdown();
+    }
+
+    /**
+     * guesses how much work every cell of the screen is from the last frame
+     * and keeps splitting the most expensive sector in two where the cost is halved
+     * untill no sector has more than its share of the work for one thread
+     * @return sectors that cover the whole screen, most expensive first
+     */
+    private List<Sector> planSectors(){
+        int columns = (math.width + COST_CELL - 1) / COST_CELL;
+        int rows = (math.height + COST_CELL - 1) / COST_CELL;
+        //summed area table of the guesses so the cost of any sector is 4 lookups,
+        //one bigger in each direction so the sums start at 0
+        long[] sums = new long[(columns + 1) * (rows + 1)];
+        long average = 1;
+        if (costMap != null) {
+            long total = 0;
+            for (long cost : costMap) {
+                total += cost;
+            }
+            average = Math.max(1, total / costMap.length);
+        }
+        for (int cy = 0; cy < rows; cy++) {
+            for (int cx = 0; cx < columns; cx++) {
+                int index = (cy + 1) * (columns + 1) + cx + 1;
+                sums[index] = estimateCost(cx, cy, average) + sums[index - 1] + sums[index - columns - 1] - sums[index - columns - 2];
+            }
+        }
+
+        PriorityQueue<Sector> queue = new PriorityQueue<>((a, b) -> Long.compare(b.cost, a.cost));
+        queue.add(new Sector(0, 0, columns, rows, sums, columns));
+        long limit = queue.peek().cost / ((long) renderPool.getParallelism() * SECTORS_PER_THREAD);
+        List<Sector> sectors = new ArrayList<>();
+        while (!queue.isEmpty() && queue.peek().cost > limit && queue.size() + sectors.size() < MAX_SECTORS) {
+            Sector sector = queue.poll();
+            if (!splitSector(sector, sums, columns, queue)) {
+                //a single cell cant get any smaller
+                sectors.add(sector);
+            }
+        }
+        sectors.addAll(queue);
+        //cheap sectors stay merged but never get bigger than an eighth of the screen
+        int maxWidth = Math.max(1, (math.width / MIN_SECTORS_ACROSS + COST_CELL - 1) / COST_CELL);
+        int maxHeight = Math.max(1, (math.height / MIN_SECTORS_ACROSS + COST_CELL - 1) / COST_CELL);
+        for (int i = 0; i < sectors.size(); i++) {
+            Sector sector = sectors.get(i);
+            if (sector.width > maxWidth) {
+                int half = sector.width / 2;
+                sectors.set(i, new Sector(sector.x, sector.y, half, sector.height, sums, columns));
+                sectors.add(new Sector(sector.x + half, sector.y, sector.width - half, sector.height, sums, columns));
+                i--;
+            } else if (sector.height > maxHeight) {
+                int half = sector.height / 2;
+                sectors.set(i, new Sector(sector.x, sector.y, sector.width, half, sums, columns));
+                sectors.add(new Sector(sector.x, sector.y + half, sector.width, sector.height - half, sums, columns));
+                i--;
+            }
+        }
+        sectors.sort((a, b) -> Long.compare(b.cost, a.cost));
+        //cells to pixels, the last row and column of cells can be cut off by the edge of the screen
+        for (Sector sector : sectors) {
+            int endX = Math.min((sector.x + sector.width) * COST_CELL, math.width);
+            int endY = Math.min((sector.y + sector.height) * COST_CELL, math.height);
+            sector.x *= COST_CELL;
+            sector.y *= COST_CELL;
+            sector.width = endX - sector.x;
+            sector.height = endY - sector.y;
+        }
+        return sectors;
+    }
+
+    /**
+     * cuts a sector across its longer side where the cost on both sides is closest to even
+     * @param sector in cells
+     * @param sums summed area table of the cost of the cells
+     * @param columns how many columns of cells the screen has
+     * @param queue gets both halves
+     * @return false if the sector is a single cell
+     */
+    private boolean splitSector(Sector sector, long[] sums, int columns, PriorityQueue<Sector> queue){
+        boolean vertical = sector.width >= sector.height;
+        int length = vertical ? sector.width : sector.height;
+        if (length < 2) {
+            return false;
+        }
+        int bestCut = 1;
+        long bestDifference = Long.MAX_VALUE;
+        for (int cut = 1; cut < length; cut++) {
+            long first = vertical
+                ? Sector.cost(sector.x, sector.y, cut, sector.height, sums, columns)
+                : Sector.cost(sector.x, sector.y, sector.width, cut, sums, columns);
+            long difference = Math.abs(sector.cost - 2 * first);
+            if (difference < bestDifference) {
+                bestDifference = difference;
+                bestCut = cut;
+            }
+        }
+        if (vertical) {
+            queue.add(new Sector(sector.x, sector.y, bestCut, sector.height, sums, columns));
+            queue.add(new Sector(sector.x + bestCut, sector.y, sector.width - bestCut, sector.height, sums, columns));
+        } else {
+            queue.add(new Sector(sector.x, sector.y, sector.width, bestCut, sums, columns));
+            queue.add(new Sector(sector.x, sector.y + bestCut, sector.width, sector.height - bestCut, sums, columns));
+        }
+        return true;
+    }
+
+    /**
+     * finds the cell of the last frame that was over the same spot of the fractal
+     * @param cordinates of the cell on the screen now
+     * @param average cost of a cell of the last frame, used for the parts that werent on it
+     * @return how much work the cell probably is
+     */
+    private long estimateCost(int cx, int cy, long average){
+        if (costMap == null) {
+            //nothing to go on so every cell is the same
+            return 1;
+        }
+        if (costRealStep < Math.ulp(costReal) || costImagStep < Math.ulp(costImag)) {
+            //zoomed in too deep for the doubles to line the frames up
+            return average;
+        }
+        double real = math.xToReal(Math.min(cx * COST_CELL + COST_CELL / 2, math.width - 1));
+        double imag = math.yToImag(Math.min(cy * COST_CELL + COST_CELL / 2, math.height - 1));
+        double oldX = (real - costReal) / costRealStep;
+        double oldY = (imag - costImag) / costImagStep;
+        //parts of the screen that werent on the last frame
+        if (!(oldX >= 0 && oldX < costColumns * COST_CELL && oldY >= 0 && oldY < costRows * COST_CELL)) {
+            return average;
+        }
+        return costMap[(int) (oldY / COST_CELL) * costColumns + (int) (oldX / COST_CELL)];
+    }
+
+    /**
+     * adds up how much work every cell of a sector took right after the worker finished it
+     * while its pixels are still in the cache, sectors start and end on the edges of cells
+     * and never overlap so no two workers ever write the same cell
+     * @param sector in pixels
+     * @param costs cells of the frame being calculated
+     * @param columns how many columns of cells the screen has
+     * @see FractalMath#pixelCost(int, int)
+     */
+    private void recordSectorCost(Sector sector, long[] costs, int columns){
+        if (cancelled) {
+            return;
+        }
+        int firstColumn = sector.x / COST_CELL;
+        int endColumn = (sector.x + sector.width + COST_CELL - 1) / COST_CELL;
+        for (int cy = sector.y / COST_CELL; cy * COST_CELL < sector.y + sector.height; cy++) {
+            Arrays.fill(costs, cy * columns + firstColumn, cy * columns + endColumn, 0);
+            for (int y = cy * COST_CELL; y < Math.min((cy + 1) * COST_CELL, sector.y + sector.height); y++) {
+                for (int x = sector.x; x < sector.x + sector.width; x++) {
+                    costs[cy * columns + x / COST_CELL] += math.pixelCost(x, y);
+                }
+            }
+        }
+    }
+
+    /**
+     * makes the cells the workers just filled in the cost map the next frame plans its sectors with
+     * and remembers where on the fractal they were
+     * @param columns how many columns of cells the screen has
+     * @param rows how many rows of cells the screen has
+     */
+    private void swapCostMap(int columns, int rows){
+        long[] old = costMap;
+        costMap = nextCostMap;
+        nextCostMap = old != null ? old : new long[0];
+        costColumns = columns;
+        costRows = rows;
+        costReal = math.xToReal(0);
+        costImag = math.yToImag(0);
+        costRealStep = math.getRealStep();
+        costImagStep = math.getImagStep();
+    }
+
+    /**
+     * follows the edges inside a sector with the boundary engine
+     * @param sector in pixels
+     * @see FractalBoundaryTrace#renderTile(int, int, int, int)
+     */
+    private void renderTile(Sector sector){
+        long startTime = System.nanoTime();
+        FractalRenderEvents.FillEvent event = new FractalRenderEvents.FillEvent();
+        event.begin();
+        pixelsFilled.add(boundaryTrace.renderTile(sector.x, sector.y, sector.width, sector.height));
+        commitFill(event, sector.x, sector.y, sector.width, sector.height, false);
+        addBusyTime(System.nanoTime() - startTime);
+        animationStep();
+    }
+
+    /**
+     * runs the workers of a frame and waits for them, if the display is animating
+     * the thread that started the frame colors it and shows it every tick while they run
+     * so only that thread ever touches the pixels and the display, the workers only wait
+     * a moment after every step to slow the frame down enough to watch
+     * @param workers every sector of the frame
+     * @see this{@link #animationStep()}
+     */
+    private void runWorkers(ForkJoinTask<?> workers){
+        if(math.display == null || !math.display.isAnimating()){
+            renderPool.invoke(workers);
+            return;
+        }
+        animating = true;
+        try {
+            renderPool.execute(workers);
+            while(!workers.isDone()){
+                math.colorData();
+                math.display.repaint();
+                try {
+                    Thread.sleep(ANIMATION_TICK);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            workers.join();
+        } finally {
+            animating = false;
+        }
+    }
+
+    /**
+     * called by the workers after every step of an animated frame,
+     * does nothing when the frame isnt animated
+     * @see this{@link #runWorkers(ForkJoinTask)}
+     */
+    private void animationStep(){
+        if(!animating){
+            return;
+        }
         try {
-            executor.awaitTermination(Long.MAX_VALUE, java.util.concurrent.TimeUnit.NANOSECONDS);
+            Thread.sleep(ANIMATION_STEP);
         } catch (InterruptedException e) {
-            //Auto-generated catch block
-            e.printStackTrace();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * part of the screen the tracer starts from, in cells while it gets planned
+     * and in pixels once its handed to the threads
+     */
+    private static class Sector {
+        int x;
+        int y;
+        int width;
+        int height;
+        long cost;
+
+        Sector(int x, int y, int width, int height, long[] sums, int columns) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.cost = cost(x, y, width, height, sums, columns);
+        }
+
+        /**
+         * @return total cost of the cells in the rectangle
+         */
+        static long cost(int x, int y, int width, int height, long[] sums, int columns) {
+            int stride = columns + 1;
+            return sums[(y + height) * stride + x + width] - sums[y * stride + x + width]
+                - sums[(y + height) * stride + x] + sums[y * stride + x];
+        }
+    }
+
+    /**
+     * hands the numbers of the frame that just finished to JMX and the flight recorder
+     * @param event started when the frame started
+     */
+    private void recordFrame(FractalRenderEvents.FrameEvent event){
+        event.end();
+        long pixels = (long) math.width * math.height;
+        //only up to the deepest split that happened
+        int depths = MAX_DEPTH;
+        while (depths > 0 && depthCounts.get(depths - 1) == 0) {
+            depths--;
+        }
+        long[] depthHistogram = new long[depths];
+        long rectangles = 0;
+        for (int depth = 0; depth < depths; depth++) {
+            depthHistogram[depth] = depthCounts.get(depth);
+            rectangles += depthHistogram[depth];
+        }
+        long[] threadBusy = new long[threadBusyTimes.size()];
+        for (int i = 0; i < threadBusy.length; i++) {
+            threadBusy[i] = threadBusyTimes.get(i)[0];
+        }
+        stats.recordFrame(lastFrameTime, pixels, math.getPixelsIterated(), pixelsFilled.sum(),
+            math.getTotalIterations(), depthHistogram, threadBusy, lastIdlePercent, lastStealCount);
+        if (event.shouldCommit()) {
+            event.width = math.width;
+            event.height = math.height;
+            event.maxIter = math.maxIter;
+            event.precision = math.getPrecisionName();
+            event.vector = math.useVector;
+            event.engine = math.getEngineName();
+            event.discs = math.useDistanceEstimation ? distanceEstimate.lastDiscCount : 0;
+            event.pixelsIterated = math.getPixelsIterated();
+            event.pixelsFilled = pixelsFilled.sum();
+            event.totalIterations = math.getTotalIterations();
+            event.iterationsSaved = math.getIterationsSaved();
+            event.maxDepth = depths - 1;
+            event.rectangles = rectangles;
+            event.sectors = lastSectorCount;
+            event.pixelsPerSecond = lastFrameTime > 0 ? pixels / (lastFrameTime / 1e9) : 0;
+            event.idlePercent = lastIdlePercent;
+            event.steals = lastStealCount;
+            event.cancelled = cancelled;
+            event.commit();
+        }
+    }
+
+    /**
+     * adds to the time the thread running it spent calculating this frame
+     * @param time nanoseconds
+     */
+    void addBusyTime(long time){
+        busyTime.add(time);
+        threadBusyTime.get()[0] += time;
+    }
+
+    /**
+     * draws one coarse pass of a progressive render where every block of
+     * blockSize by blockSize pixels gets the color of its top left pixel,
+     * pixels that were calculated in a coarser pass are reused
+     * @param blockSize width and height of the blocks
+     * @see FractalProgressiveRender
+     */
+    public void renderBlocks(int blockSize){
+        List<ForkJoinTask<?>> rows = new ArrayList<>();
+        for (int y = 0; y < math.height; y += blockSize) {
+            final int startY = y;
+            rows.add(ForkJoinTask.adapt(() -> {
+                if(cancelled){
+                    return;
+                }
+                for (int x = 0; x < math.width; x += blockSize) {
+                    int iter = math.drawFractal(x, startY);
+                    math.fillBlock(x, startY, blockSize, iter);
+                }
+            }));
         }
+        renderPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(rows)));
+    }
 
-        math.frame.animate = false;
+    /**
+     * calculates only the strips along the edges of the screen that got 
+     * uncovered after the last frame got shifted over
+     * @param shiftX how many pixels the view moved right
+     * @param shiftY how many pixels the view moved down
+     * @see FractalMath#startShiftedFrame()
+     */
+    public void renderShifted(int shiftX, int shiftY){
+        //columns on the left or right that came into view
+        int stripStartX = shiftX > 0 ? math.width - shiftX : 0;
+        int stripWidth = Math.abs(shiftX);
+        List<ForkJoinTask<?>> rows = new ArrayList<>();
+        for (int y = 0; y < math.height; y++) {
+            final int startY = y;
+            boolean newRow = y + shiftY < 0 || y + shiftY >= math.height;
+            if (!newRow && stripWidth == 0) {
+                continue;
+            }
+            rows.add(ForkJoinTask.adapt(() -> {
+                if(cancelled){
+                    return;
+                }
+                if(newRow){
+                    math.drawFractalLine(0, startY, math.width, false);
+                } else {
+                    math.drawFractalLine(stripStartX, startY, stripWidth, false);
+                }
+            }));
+        }
+        renderPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(rows)));
+    }
+
+    /**
+     * carries on every pixel that hit the old iteration limit a row per task,
+     * the edge tracer has to run after it to redo the rectangles it filled in
+     * @see FractalMath#startResumedFrame()
+     */
+    public void renderResumed(){
+        List<ForkJoinTask<?>> rows = new ArrayList<>();
+        for (int y = 0; y < math.height; y++) {
+            final int startY = y;
+            rows.add(ForkJoinTask.adapt(() -> {
+                if(cancelled){
+                    return;
+                }
+                for (int x = 0; x < math.width; x++) {
+                    math.resumePixel(x, startY);
+                }
+            }));
+        }
+        renderPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(rows)));
+    }
 
+    /**
+     * runs something for every row of the screen on the render pool
+     * handing out a band of rows to each task, doesnt care about cancelled
+     * since its used for work that has to finish like coloring,
+     * while an animated frame has the pool the rows run on the calling thread instead
+     * @param row what to do with the row, gets the y of the row
+     * @see FractalMath#colorData()
+     */
+    public void forEachRow(IntConsumer row){
+        if(animating){
+            for (int y = 0; y < math.height; y++) {
+                row.accept(y);
+            }
+            return;
+        }
+        List<ForkJoinTask<?>> bands = new ArrayList<>();
+        for (int y = 0; y < math.height; y += ROW_BAND) {
+            final int startY = y;
+            bands.add(ForkJoinTask.adapt(() -> {
+                for (int j = startY; j < Math.min(startY + ROW_BAND, math.height); j++) {
+                    row.accept(j);
+                }
+            }));
+        }
+        renderPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(bands)));
+    }
+
+    /**
+     * runs something for every row of the screen split into stripes, every stripe is one task
+     * that gets every stripes-th band of rows so the stripes get about the same mix of rows,
+     * a stripe only ever runs on one thread at a time so it can add things up in its own array
+     * @param stripes how many tasks to split the rows into
+     * @param row what to do with the row, gets the stripe and the y of the row
+     * @see FractalPalette#prepare(int[], int, int)
+     */
+    public void forEachStripe(int stripes, StripeRow row){
+        if(animating){
+            //one thread going through the stripes one after the other still never runs one twice at once
+            for (int s = 0; s < stripes; s++) {
+                for (int y = s * ROW_BAND; y < math.height; y += stripes * ROW_BAND) {
+                    for (int j = y; j < Math.min(y + ROW_BAND, math.height); j++) {
+                        row.accept(s, j);
+                    }
+                }
+            }
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int s = 0; s < stripes; s++) {
+            final int stripe = s;
+            tasks.add(ForkJoinTask.adapt(() -> {
+                for (int y = stripe * ROW_BAND; y < math.height; y += stripes * ROW_BAND) {
+                    for (int j = y; j < Math.min(y + ROW_BAND, math.height); j++) {
+                        row.accept(stripe, j);
+                    }
+                }
+            }));
+        }
+        renderPool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    /**
+     * a row of the screen in one of the stripes of forEachStripe
+     */
+    public interface StripeRow {
+        void accept(int stripe, int y);
+    }
+
+    /**
+     * @return the disc filler that runs before the engines when distance estimation is on
+     */
+    public FractalDistanceEstimate getDistanceEstimate() {
+        return distanceEstimate;
+    }
+
+    /**
+     * @return number of threads the fractal is being calculated on
+     */
+    public int getThreadCount() {
+        return renderPool.getParallelism();
     }
     
     /**
-     * uses recursion to search a rectangle for the edge of a fractal when
-     * a rectangle detects that there is at least part of an edge of the 
-     * fractal inside it it splits up the quadrant untill the line is fully
-     * rendered and reducing the amount of unnessesary calculations
+     * calculates the border of a sector and then searches it for the edge of the fractal,
+     * the border is the outer ring of pixels of the rectangle and everything inside it
+     * either gets filled in or split up by subdivide
      * @param startX starting x
      * @param startY starting y
      * @param sectorWidth how big the sector width is
      * @param sectorHeight how big the sector height is
-     * @see this{@link #fullRenderRectangle(int, int, int, int)}
-     *    used to fill the rectangle bececause it coulnt go into 
-     *    smaller increments to find the exact line
-     * @see this{@link #fullRenderRectangle(int, int, int, int, int)} 
-     *    used to fill in a rectangle that is 
-     *    guaranteed to be one color because all 
-     *    the edges of the rectangle had been` a single color
+     * @see this{@link #subdivide(int, int, int, int, int)}
      */
     public void renderRectangle(int startX, int startY, int sectorWidth, int sectorHeight){
-        boolean lineDetected = false;
-        int controlIteration = math.drawFractal(startX, startY);
-        int control = math.getColor(startX, startY);
-        int x = 0;
-        int y = 0;
-        //top edge
-        y = startY;
-        for(x = startX+1;x < startX+sectorWidth;x++){
-            math.drawFractal(x, y);
-            
-            if(math.getColor(x,y) != control){
-                lineDetected = true;
-            }
-        }
-        
-        //bottom edge
-        y = startY+sectorHeight-1;
-        for(x = startX;x < startX+sectorWidth;x++){
-            math.drawFractal(x, y);
-           
-           if(math.getColor(x,y) != control){
-               lineDetected = true;
-           }
-        }
-
-        //left edge
-        x = startX;
-        for(y = startY;y < startY+sectorHeight;y++){
-            math.drawFractal(x, y);
-            
-            if(math.getColor(x,y) != control){
-                lineDetected = true;
-            }
-        }
-        //right edge
-        x = startX+sectorWidth-1;
-        for(y = startY;y < startY+sectorHeight;y++){
-            math.drawFractal(x, y);
-            
-            if(math.getColor(x,y) != control){
-                lineDetected = true;
-            }
-        }
-        
-        // Uncomment to see the fractal generate in real time (Dont try to zoom or drag the fractal)
-        if(math.frame.animate){
-            math.colorData();
-            math.frame.repaint();
-        }
-
-        //if line is detected in quadrant split up the quadrant and look for the line
-        //else
-        //render all the pixels acording to the control 
-        //in order to save on calculations
-        if(lineDetected){
-            //if quadrant is too small then just render all the pixels
-            if(sectorHeight > 3){
-                renderRectangle((startX)+1,                 (startY)+1,                 (sectorWidth/2)-1,    (sectorHeight/2)-1);
-                renderRectangle((startX+sectorWidth/2),   (startY)+1,                 (sectorWidth/2),  (sectorHeight/2)-1);
-                renderRectangle((startX)+1,                 (startY+sectorHeight/2),  (sectorWidth/2)-1,  (sectorHeight/2));
-                renderRectangle((startX+sectorWidth/2),     (startY+sectorHeight/2),    (sectorWidth/2),    (sectorHeight/2));
+        renderRectangle(startX, startY, sectorWidth, sectorHeight, 0);
+    }
+
+    /**
+     * @param depth how many times the sector got split to get this rectangle
+     * @see this{@link #renderRectangle(int, int, int, int)}
+     */
+    private void renderRectangle(int startX, int startY, int sectorWidth, int sectorHeight, int depth){
+        //the view changed so this render is getting thrown away anyway
+        if(cancelled || sectorWidth <= 0 || sectorHeight <= 0){
+            return;
+        }
+        long startTime = System.nanoTime();
+        //top and bottom rows whole, the sides without the corners
+        math.drawFractalLine(startX, startY, sectorWidth, false);
+        math.drawFractalLine(startX, startY + sectorHeight - 1, sectorWidth, false);
+        math.drawFractalLine(startX, startY + 1, sectorHeight - 2, true);
+        math.drawFractalLine(startX + sectorWidth - 1, startY + 1, sectorHeight - 2, true);
+        addBusyTime(System.nanoTime() - startTime);
+        subdivide(startX, startY, sectorWidth, sectorHeight, depth);
+    }
+
+    /**
+     * mariani-silver subdivision of a rectangle whose border is already calculated,
+     * if every pixel of the border took the same number of iterations the whole inside
+     * took it too and gets filled in, otherwise a line gets calculated across the middle
+     * (both ways unless the rectangle is long and thin) and the pieces get handed on
+     * with their borders already done so every pixel only ever gets iterated once
+     * @param startX starting x
+     * @param startY starting y
+     * @param width width including the border
+     * @param height height including the border
+     * @param depth how many times the sector got split to get this rectangle
+     * @see this{@link #fullRenderRectangle(int, int, int, int)}
+     *    used to calculate the inside when its too small to be worth splitting
+     * @see this{@link #fullRenderRectangle(int, int, int, int, int)}
+     *    used to fill in the inside when the border is all the same
+     */
+    private void subdivide(int startX, int startY, int width, int height, int depth){
+        if(cancelled){
+            return;
+        }
+        long startTime = System.nanoTime();
+        FractalRenderEvents.RectangleEvent event = new FractalRenderEvents.RectangleEvent();
+        event.begin();
+        depthCounts.incrementAndGet(Math.min(depth, MAX_DEPTH - 1));
+        int control = math.getIterations(startX, startY);
+        boolean lineDetected = !borderIsUniform(startX, startY, width, height, control);
+
+        //slows down to see the fractal generate in real time (Dont try to zoom or drag the fractal)
+        animationStep();
+        event.end();
+        if(event.shouldCommit()){
+            event.x = startX;
+            event.y = startY;
+            event.width = width;
+            event.height = height;
+            event.depth = depth;
+            event.edgeFound = lineDetected;
+            event.commit();
+        }
+
+        if(width <= 2 || height <= 2){
+            //its all border
+        } else if(!lineDetected){
+            //filter 1 shows these as white when the pixels get colored
+            fullRenderRectangle(startX, startY, width, height, control);
+        } else if(width < MIN_SPLIT || height < MIN_SPLIT){
+            fullRenderRectangle(startX, startY, width, height);
+        } else {
+            //long thin rectangles only get cut across so the pieces dont get even thinner
+            boolean cutColumns = width * 2 >= height;
+            boolean cutRows = height * 2 >= width;
+            int midX = startX + width / 2;
+            int midY = startY + height / 2;
+            if(cutRows){
+                math.drawFractalLine(startX + 1, midY, width - 2, false);
+            }
+            if(cutColumns){
+                //crosses the row that was just done, drawFractalLine skips pixels that are already known
+                math.drawFractalLine(midX, startY + 1, height - 2, true);
+            }
+            int leftWidth = midX - startX + 1;
+            int rightWidth = startX + width - midX;
+            int topHeight = midY - startY + 1;
+            int bottomHeight = startY + height - midY;
+            addBusyTime(System.nanoTime() - startTime);
+            //each piece is its own task so idle threads can steal them
+            if(cutColumns && cutRows){
+                ForkJoinTask.invokeAll(
+                    new RectangleTask(startX, startY, leftWidth,  topHeight,    depth + 1),
+                    new RectangleTask(midX,   startY, rightWidth, topHeight,    depth + 1),
+                    new RectangleTask(startX, midY,   leftWidth,  bottomHeight, depth + 1),
+                    new RectangleTask(midX,   midY,   rightWidth, bottomHeight, depth + 1));
+            } else if(cutColumns){
+                ForkJoinTask.invokeAll(
+                    new RectangleTask(startX, startY, leftWidth,  height, depth + 1),
+                    new RectangleTask(midX,   startY, rightWidth, height, depth + 1));
             } else {
-                fullRenderRectangle(startX,startY,sectorWidth,sectorHeight);
+                ForkJoinTask.invokeAll(
+                    new RectangleTask(startX, startY, width, topHeight,    depth + 1),
+                    new RectangleTask(startX, midY,   width, bottomHeight, depth + 1));
             }
-        } else {
-            if(math.filter == 0 || math.filter == 2){
-                fullRenderRectangle(startX,startY,sectorWidth,sectorHeight,controlIteration);
-            } else if (math.filter == 1) {
-                fullRenderRectangle(startX,startY,sectorWidth,sectorHeight,0);
+            return;
+        }
+        addBusyTime(System.nanoTime() - startTime);
+    }
+
+    /**
+     * @param control iteration count of the top left pixel
+     * @return true if every pixel on the border took the same number of iterations,
+     * iterations and not colors since the colors repeat and would hide an edge
+     */
+    private boolean borderIsUniform(int startX, int startY, int width, int height, int control){
+        int endX = startX + width - 1;
+        int endY = startY + height - 1;
+        for(int x = startX; x <= endX; x++){
+            if(math.getIterations(x, startY) != control || math.getIterations(x, endY) != control){
+                return false;
+            }
+        }
+        for(int y = startY + 1; y < endY; y++){
+            if(math.getIterations(startX, y) != control || math.getIterations(endX, y) != control){
+                return false;
             }
         }
-        
+        return true;
+    }
+
+    /**
+     * a rectangle of the screen whose border is already calculated
+     * that can be split up and stolen by the other threads in the render pool
+     * @see FractalEdgeTrace#subdivide(int, int, int, int, int)
+     */
+    private class RectangleTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private int startX;
+        private int startY;
+        private int sectorWidth;
+        private int sectorHeight;
+        private int depth;
+
+        RectangleTask(int startX, int startY, int sectorWidth, int sectorHeight, int depth) {
+            this.startX = startX;
+            this.startY = startY;
+            this.sectorWidth = sectorWidth;
+            this.sectorHeight = sectorHeight;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            subdivide(startX, startY, sectorWidth, sectorHeight, depth);
+        }
+    }
+
+    /**
+     * calculates every pixel of the screen again without skipping any
+     * and counts how many dont match what the tracer came up with,
+     * pixels the tracer never got to count as wrong too
+     * @return how many pixels are wrong
+     * @see FractalBenchmark
+     */
+    public long verify(){
+        LongAdder wrong = new LongAdder();
+        forEachRow(y -> {
+            int count = 0;
+            for (int x = 0; x < math.width; x++) {
+                if (!math.isKnown(x, y) || math.getIterations(x, y) != Math.min(math.calculatePixel(x, y), math.maxIter)) {
+                    count++;
+                }
+            }
+            wrong.add(count);
+        });
+        return wrong.sum();
     }
  
     /**
@@ -154,19 +852,19 @@ public class FractalEdgeTrace {
      * @param sectorHeight
      */
     public void fullRenderRectangle(int startX, int startY, int sectorWidth, int sectorHeight){
-        for(int x = startX; x < startX + sectorWidth; x++){
-            for(int y = startY; y < startY + sectorHeight; y++){
-                if (x != startX && x != startX + sectorWidth - 1 && y != startY && y != startY + sectorHeight - 1) {
-                    math.drawFractal(x, y);
-                }
-            }
+        FractalRenderEvents.FillEvent event = new FractalRenderEvents.FillEvent();
+        event.begin();
+        //one row at a time so the vector kernels get whole lines to work with
+        for(int y = startY + 1; y < startY + sectorHeight - 1; y++){
+            math.drawFractalLine(startX + 1, y, sectorWidth - 2, false);
         }
-    
+        commitFill(event, startX, startY, sectorWidth, sectorHeight, true);
     }
 
     /** renders the rest of the rectangle 
      *  by filling up the space with control
      *  as to not cause unnessesary calcuations  
+     *  and marks the pixels as filled instead of calculated
      * @param startX
      * @param startY
      * @param sectorWidth
@@ -174,40 +872,30 @@ public class FractalEdgeTrace {
      * @param control
      */
     public void fullRenderRectangle(int startX, int startY, int sectorWidth, int sectorHeight, int control){
-        for(int x = startX; x < startX + sectorWidth; x++){
-            for(int y = startY; y < startY + sectorHeight; y++){
-                if (x != startX && x != startX + sectorWidth - 1 && y != startY && y != startY + sectorHeight - 1) {
-                    math.setColor(x,y,control);
-                }
-            }
+        FractalRenderEvents.FillEvent event = new FractalRenderEvents.FillEvent();
+        event.begin();
+        if(sectorWidth > 2 && sectorHeight > 2){
+            //with the continuous colors some of them get calculated so only the rest count
+            pixelsFilled.add(math.fillRectangle(startX, startY, sectorWidth, sectorHeight, control));
         }
-    
+        commitFill(event, startX, startY, sectorWidth, sectorHeight, false);
     }
-    
+
     /**
-     * detects if a pixel in the data has an edge or not
-     * @param cords in the data
-     * @return returns the intensity of the edge
-     * @see FractalMath#colorData()
+     * @param calculated true if the pixels went through the kernel, false if they got filled in
      */
-    public int computeEdgeStrength(int x, int y) {
-        int color = math.getColor(x, y);   
-        for (int j = -1; j <= 1; j++) {
-            for (int i = -1; i <= 1; i++) {
-                int pixelX = x + i;
-                int pixelY = y + j;
-    
-                if (pixelX >= 0 && pixelX < math.width &&
-                    pixelY >= 0 && pixelY < math.height) {
-                        if(color != data[pixelY * math.width + pixelX]){
-                            return 1;
-                        }
-                }
-            }
+    private static void commitFill(FractalRenderEvents.FillEvent event, int startX, int startY,
+            int sectorWidth, int sectorHeight, boolean calculated){
+        event.end();
+        if(event.shouldCommit()){
+            event.x = startX;
+            event.y = startY;
+            event.width = sectorWidth;
+            event.height = sectorHeight;
+            event.calculated = calculated;
+            event.commit();
         }
-    
-        return 0;
     }
     
     
-}
+}
\ No newline at end of file
@@ -10,27 +10,49 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
-import java.awt.Point;
+import java.awt.GraphicsEnvironment;
+import java.awt.DisplayMode;
+import java.awt.Transparency;
 
 //Windows frame library
 import javax.swing.JFrame;
+import javax.swing.Timer;
 import java.awt.image.BufferStrategy;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
 import java.awt.Toolkit;
 
-public class FractalFrame extends JFrame {
+//File library
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+public class FractalFrame extends JFrame implements FractalDisplay {
     //fractal math required to generate the fractal 
     public FractalListener fractalListener;
     
     //listeners so that i can check for keyboard/mouse inputs
     public FractalMath fractalMath;
 
+    //renders the fractal on its own thread so the window never freezes
+    public FractalRenderScheduler renderScheduler;
+
     //When animating disable all possible player input aside from esc to leave program and update the 
     //canvas during the generation in order to visualize how the program generates the fractal
     public boolean animate;
 
-    //The image the fractal is stored in
-    public BufferedImage canvas;
+    //the two images the fractal is stored in, one is on screen while the next frame
+    //gets colored straight into the pixels of the other and then they swap
+    private BufferedImage[] canvases = new BufferedImage[2];
+    private int[][] canvasPixels = new int[2][];
+    //which of the two is on screen, only changed or read while holding the lock
+    private int front;
+    //painting the front image and handing out the back one wait for each other so a frame
+    //never gets written into while its still being drawn
+    private final Object canvasLock = new Object();
     private BufferStrategy bufferStrategy;
 
     //how many times smaller will the acutual resoulution of the picture be compared to the screen resolution
@@ -40,6 +62,25 @@ public class FractalFrame extends JFrame {
     public int canvasWidth;
     public int canvasHeight;
 
+    //how big the tile file can get before the oldest tiles get thrown out
+    private static final long TILE_FILE_BYTES = 512L << 20;
+
+    //orbit of the point under the mouse drawn on top of the fractal
+    public FractalOrbitOverlay orbitOverlay = new FractalOrbitOverlay();
+    //mouse moves only save where the mouse is and this draws the newest one once per screen refresh
+    private Timer orbitTimer;
+    private int orbitX;
+    private int orbitY;
+    private boolean orbitPending;
+    //made once so the timer doesnt make a new lambda every tick, reads where the mouse is when it runs
+    private final Consumer<FractalMath> orbitReader = math -> math.calculateFractalPath(orbitX, orbitY, orbitOverlay);
+    //AWT color of the orbit dots, only made again when the dot color changes
+    private Color orbitDotColor;
+
+    //part of a canvas pixel the mouse has been dragged but the fractal hasnt moved yet
+    private double dragRemainderX;
+    private double dragRemainderY;
+
     /**
      * @param maxIterations the maxiumum amount of iterations
      */
@@ -60,38 +101,86 @@ public class FractalFrame extends JFrame {
         //sets up the buffered image
         setupCanvas();
 
+        orbitTimer = new Timer(getRefreshDelay(), e -> drawPendingOrbit());
+        orbitTimer.setCoalesce(true);
+
         // calculating fractals
         fractalMath = new FractalMath(this, maxIterations, canvasWidth, canvasHeight);
+        fractalMath.getTracer().stats.register();
+        //opened even when animating so the opening frame gets kept for next time too
+        openTileStore();
+        renderScheduler = new FractalRenderScheduler(this, fractalMath);
         if(animate){
             fractalMath.filter = 1;
+            //instead of just calling the calculate fractal method i just call these so that i can animate the process 
+            //and not let the user to interact with the program after that to prevent bugs
+            fractalMath.edgeDetectionFractal();
+            fractalMath.colorData();
+            repaint();
+        } else {
+            calculateFractal();
         }
-        //instead of just calling the calculate fractal method i just call these so that i can animate the process 
-        //and not let the user to interact with the program after that to prevent bugs
-
-        fractalMath.edgeDetectionFractal();
-        fractalMath.colorData();
-        repaint();
     }
     
 
     /**
-     * sets up the buffered image into the frame so that it has double buffering enable
-     * and starts out white
+     * sets up the buffered images into the frame so that it has double buffering enable
+     * and they start out white
      */
     public void setupCanvas() {
-        // sets up the image
-        canvas = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_ARGB);
-        //sets up default image
-        Graphics2D g2d = canvas.createGraphics();
-        g2d.setColor(Color.WHITE);
-        g2d.fillRect(0, 0, canvasWidth, canvasHeight);
-        g2d.dispose();
+        // sets up the images
+        for (int i = 0; i < 2; i++) {
+            canvases[i] = createCanvas();
+            canvasPixels[i] = ((DataBufferInt) canvases[i].getRaster().getDataBuffer()).getData();
+            //sets up default image
+            Arrays.fill(canvasPixels[i], FractalMath.WHITE);
+        }
         //sets up double buffering
         createBufferStrategy(2);
         bufferStrategy = getBufferStrategy();
 
     }
 
+    /**
+     * makes an image in the format the screen uses so drawing it doesnt have to convert every pixel,
+     * unless the screen uses something other than one int per pixel laid out like the ARGB colors
+     * of the render core (like a 16 bit screen) where it has to fall back to a normal ARGB image
+     * @return image the size of the canvas
+     */
+    private BufferedImage createCanvas() {
+        BufferedImage image = getGraphicsConfiguration().createCompatibleImage(canvasWidth, canvasHeight, Transparency.TRANSLUCENT);
+        if (image.getRaster().getDataBuffer() instanceof DataBufferInt
+                && image.getColorModel() instanceof DirectColorModel) {
+            DirectColorModel model = (DirectColorModel) image.getColorModel();
+            //premultiplied is fine since every color is either fully opaque or 0
+            if (model.getRedMask() == 0xff0000 && model.getGreenMask() == 0xff00 && model.getBlueMask() == 0xff
+                    && (model.getAlphaMask() == 0xff000000 || model.getAlphaMask() == 0)) {
+                return image;
+            }
+        }
+        return new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * keeps the tile cache in a file in the home folder so views that
+     * were already calculated load straight away the next time the program opens,
+     * the file only holds tiles for one canvas size since the grid depends on it
+     * @see FractalTileStore
+     */
+    private void openTileStore() {
+        Path file = Paths.get(System.getProperty("user.home"), ".FractalExplorer",
+            "tiles-" + canvasWidth + "x" + canvasHeight + ".dat");
+        FractalTileCache tileCache = fractalMath.getTileCache();
+        try {
+            tileCache.setStore(new FractalTileStore(file, TILE_FILE_BYTES));
+        } catch (IOException e) {
+            System.out.println("Tile file could not be opened, only keeping tiles in memory: " + e.getMessage());
+            return;
+        }
+        //esc and closing the window both end up here
+        Runtime.getRuntime().addShutdownHook(new Thread(tileCache::close));
+    }
+
     /**
      * Sets up the frame to be
      * Fullscreen, not resizeable, 
@@ -117,32 +206,108 @@ public class FractalFrame extends JFrame {
         Graphics2D g2D = (Graphics2D) bufferStrategy.getDrawGraphics();
         g2D.scale(scale, scale);
         super.paint(g2D);
-        g2D.drawImage(canvas, 0, 0, this);
+        synchronized (canvasLock) {
+            g2D.drawImage(canvases[front], 0, 0, this);
+        }
+        paintOrbit(g2D);
         g2D.dispose();
         bufferStrategy.show();
     }
 
+    /**
+     * draws the lines between the points of the orbit, a dot on every point
+     * and a red dot on the average of them
+     * @param g graphics of the frame, already scaled to the canvas
+     * @see FractalMath#calculateFractalPath(int, int, FractalOrbitOverlay)
+     */
+    private void paintOrbit(Graphics g) {
+        FractalOrbitOverlay orbit = orbitOverlay;
+        if (!orbit.visible) {
+            return;
+        }
+        if (orbitDotColor == null || orbitDotColor.getRGB() != orbit.dotColor) {
+            orbitDotColor = new Color(orbit.dotColor, true);
+        }
+        g.setColor(Color.GRAY);
+        g.drawPolyline(orbit.xPoints, orbit.yPoints, orbit.length);
+        g.setColor(orbitDotColor);
+        for (int i = 0; i < orbit.dotCount; i++) {
+            g.drawOval(orbit.xPoints[i], orbit.yPoints[i], 2, 2);
+        }
+        if (orbit.dotCount > 0) {
+            g.setColor(Color.RED);
+            g.drawOval(orbit.centerX, orbit.centerY, 2, 2);
+        }
+    }
+
+    /**
+     * waits for the back image to stop being drawn if it was the front one
+     * a moment ago, after that nothing draws it untill it gets swapped to the front
+     * @return pixels of the image thats not on screen
+     * @see FractalMath#colorData()
+     */
+    @Override
+    public int[] getBackBuffer() {
+        synchronized (canvasLock) {
+            return canvasPixels[1 - front];
+        }
+    }
+
+    /**
+     * puts the back image on screen, the pixels only get copied
+     * if they werent colored straight into it
+     * @see FractalMath#colorData()
+     */
+    @Override
+    public void showPixels(int[] argb, int width, int height) {
+        synchronized (canvasLock) {
+            int back = 1 - front;
+            if (argb != canvasPixels[back]) {
+                System.arraycopy(argb, 0, canvasPixels[back], 0, width * height);
+            }
+            front = back;
+        }
+    }
+
+    @Override
+    public boolean isAnimating() {
+        return animate;
+    }
+
+    @Override
+    public void stopAnimating() {
+        animate = false;
+    }
+
     /**
      * updates the maximum iteration of the fractal
      * @param d how much to change it by
      */
     public void updateMaxIter(int d){
         if(animate == false){
-            fractalMath.maxIter += d;
-            calculateFractal();
+            postChange(math -> math.maxIter += d);
         }
     }
    
     /**
      * updates the offset based on the change in x and change in y
-     * @param dx change in x
-     * @param dy change in y
+     * the fractal only moves by whole pixels of the canvas
+     * so the rest of the drag is saved for the next one
+     * @param dx change in x in pixels of the screen
+     * @param dy change in y in pixels of the screen
      * @see FractalListener#mouseDragged(java.awt.event.MouseEvent)
      */
     public void updateOffset(int dx, int dy) {
         if(animate == false){
-            fractalMath.updateOffset(dx, dy);
-            calculateFractal();
+            dragRemainderX += dx / scale;
+            dragRemainderY += dy / scale;
+            int pixelsX = (int) dragRemainderX;
+            int pixelsY = (int) dragRemainderY;
+            dragRemainderX -= pixelsX;
+            dragRemainderY -= pixelsY;
+            if(pixelsX != 0 || pixelsY != 0){
+                postChange(math -> math.updateOffset(pixelsX, pixelsY));
+            }
         }
         
 
@@ -155,8 +320,7 @@ public class FractalFrame extends JFrame {
      */
     public void updateZoomLevel(double zoomFactor) {
         if(animate == false){
-            fractalMath.updateZoomLevel(zoomFactor);
-            calculateFractal();
+            postChange(math -> math.updateZoomLevel(zoomFactor));
         }
         
     }
@@ -168,30 +332,115 @@ public class FractalFrame extends JFrame {
     */
     public void setFractalSeed(int x, int y){
         if(animate == false){
-            fractalMath.seedReal = fractalMath.xToReal(x);
-            fractalMath.seedImag = fractalMath.yToImag(y);
-            calculateFractal();
+            postChange(math -> math.setSeed(math.xToReal(x), math.yToImag(y)));
         }
         
     }
 
-    public void setFilter(int filter) {
+    /**
+     * switches to the next filter, the last frame gets reused since
+     * the filter only changes how the iteration counts get colored,
+     * like every setting it gets changed on the render thread
+     * so it never changes halfway through a frame
+     * @see FractalMath#colorData()
+     */
+    public void nextFilter() {
         if(animate == false){
-            fractalMath.filter = filter;
-            calculateFractal();
+            postChange(math -> math.filter = (math.filter + 1) % 3);
         }
     }
 
     /**
-     * calculates the data for the 
-     * canvas then paints the canvas
+     * switches between calculating one pixel at a time 
+     * and calculating whole lines with the vector kernels
+     * @see FractalVectorKernels
+     */
+    public void toggleVectorKernel() {
+        if(animate == false){
+            postChange(math -> {
+                if(!math.useVector && !FractalMath.isVectorAvailable()){
+                    System.out.println("Vector kernels need scr/vector compiled in and the program started with --add-modules jdk.incubator.vector");
+                    return;
+                }
+                math.useVector = !math.useVector;
+            });
+        }
+    }
+
+    /**
+     * switches how the tracer skips pixels, the frame gets calculated again
+     * so the two can be compared on the same view
+     * @see FractalBoundaryTrace
+     */
+    public void nextEngine() {
+        if(animate == false){
+            postChange(math -> math.engine = math.engine == FractalMath.ENGINE_RECTANGLES
+                ? FractalMath.ENGINE_BOUNDARY : FractalMath.ENGINE_RECTANGLES);
+        }
+    }
+
+    /**
+     * turns filling the discs the distance estimate proves are all the same on or off
+     * @param useDistanceEstimation true to fill the discs before the tracer starts
+     * @see FractalDistanceEstimate
+     */
+    public void setDistanceEstimation(boolean useDistanceEstimation) {
+        if(animate == false){
+            postChange(math -> math.useDistanceEstimation = useDistanceEstimation);
+        }
+    }
+
+    /**
+     * lets shallow zooms use the float kernels, faster but
+     * a few percent of the pixels come out with different counts than with doubles
+     * @see FractalMath#selectPrecision()
+     */
+    public void toggleFloat() {
+        if(animate == false){
+            postChange(math -> math.allowFloat = !math.allowFloat);
+        }
+    }
+
+    /**
+     * turns averaging samples inside the pixels on the edges of the colors on or off
+     * @see FractalSupersample
+     */
+    public void toggleAntiAlias() {
+        if(animate == false){
+            postChange(math -> math.antiAlias = !math.antiAlias);
+        }
+    }
+
+    /**
+     * switches to the next way of turning the iteration counts into colors, only recolors
+     * unless its the continuous colors and the frame on screen didnt keep how big z got
+     * @see FractalMath#colorData()
+     */
+    public void nextColorMode() {
+        if(animate == false){
+            postChange(math -> math.getPalette().mode = (math.getPalette().mode + 1) % FractalPalette.MODE_COUNT);
+        }
+    }
+
+    /**
+     * switches to the next palette, only recolors, the random one gets new colors every time
+     * @see FractalMath#colorData()
+     */
+    public void nextPalette() {
+        if(animate == false){
+            postChange(math -> math.getPalette().setPalette((math.getPalette().palette + 1) % FractalPalette.PALETTE_COUNT));
+        }
+    }
+
+    /**
+     * starts calculating the data for the 
+     * canvas in passes and paints the canvas after each one
      * to display the fractal in its current position
+     * @see FractalRenderScheduler#post(java.util.function.Consumer)
      */
     public void calculateFractal() {
         if(animate == false){
-            fractalMath.edgeDetectionFractal();
-            fractalMath.colorData();
-            repaint();
+            postChange(math -> {});
         }
     }
 
@@ -200,24 +449,84 @@ public class FractalFrame extends JFrame {
      */
     public void resetFractal(){
         if(animate == false){
-            fractalMath.resetFractal();
-            calculateFractal();
+            postChange(math -> math.resetFractal());
         }
         
     }
 
+    /**
+     * prints how the renders have been going
+     */
+    public void printRenderStats() {
+        FractalEdgeTrace tracer = fractalMath.getTracer();
+        System.out.println(renderScheduler.getMetrics());
+        System.out.println("Last frame: " + (tracer.lastFrameTime / 1e6) + "ms Precision: " + fractalMath.getPrecisionName()
+            + " Engine: " + fractalMath.getEngineName()
+            + " Colors: " + fractalMath.getPalette().getModeName() + " " + fractalMath.getPalette().getPaletteName()
+            + (fractalMath.useDistanceEstimation ? " Discs: " + tracer.getDistanceEstimate().lastDiscCount : "")
+            + (fractalMath.antiAlias ? " Anti aliased pixels: " + fractalMath.getSupersample().lastPixelCount : "")
+            + " Steals: " + tracer.lastStealCount + " Idle: " + tracer.lastIdlePercent + "%"
+            + " Iterations saved: " + fractalMath.lastIterationsSaved);
+        System.out.println(tracer.stats.getSummary());
+        System.out.println(fractalMath.getTileCache().getStats());
+    }
+
+    /**
+     * hides the orbit since the fractal under it is about to change
+     * and hands the change to the render scheduler
+     * @param change what to do to the fractal before the next render
+     */
+    private void postChange(Consumer<FractalMath> change){
+        orbitOverlay.hide();
+        renderScheduler.post(change);
+    }
+
     /**
      * generates the line that forms on that 
      * spot on the fractal and draws the path for it
+     * on the next screen refresh
      * @param x px on the screen
      * @param y px on the screen
      */
     public void calculateFractalPath(int x, int y){
         if(animate == false){
-            fractalMath.colorData();
-            fractalMath.drawFractalPath(x,y);
-            repaint();
+            orbitX = x;
+            orbitY = y;
+            orbitPending = true;
+            if(!orbitTimer.isRunning()){
+                orbitTimer.start();
+            }
+        }
+    }
+
+    /**
+     * calculates the orbit for the last place the mouse moved to
+     * and stops the timer once the mouse stopped moving,
+     * the view only gets read while the render thread isnt changing it
+     * @see FractalRenderScheduler#readView(Consumer)
+     */
+    private void drawPendingOrbit(){
+        if(!orbitPending){
+            orbitTimer.stop();
+            return;
+        }
+        orbitPending = false;
+        renderScheduler.readView(orbitReader);
+        repaint();
+    }
+
+    /**
+     * @return milliseconds between refreshes of the screen (60 times a second if it cant be found)
+     */
+    private int getRefreshDelay(){
+        int refreshRate = DisplayMode.REFRESH_RATE_UNKNOWN;
+        if(!GraphicsEnvironment.isHeadless()){
+            refreshRate = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode().getRefreshRate();
+        }
+        if(refreshRate == DisplayMode.REFRESH_RATE_UNKNOWN){
+            refreshRate = 60;
         }
+        return Math.max(1000 / refreshRate, 1);
     }
 
     /**
@@ -228,7 +537,12 @@ public class FractalFrame extends JFrame {
     public void calculateAverageTime(int iterations) {
         //makes the frame not appear
         setVisible(false);
+        //stops the background render so it doesnt get timed too
+        renderScheduler.cancel();
         long totalTime = 0;
+        long totalSteals = 0;
+        long totalSaved = 0;
+        double totalIdle = 0;
         //for every iteration
         for (int i = 0; i < iterations; i++) {
             long startTime = System.nanoTime();
@@ -238,42 +552,22 @@ public class FractalFrame extends JFrame {
             long endTime = System.nanoTime();
             //add the total time to the sum
             totalTime += ((endTime - startTime) / 1000000);//add the amount in millisecounds to the total time
+            totalSteals += fractalMath.getTracer().lastStealCount;
+            totalIdle += fractalMath.getTracer().lastIdlePercent;
+            totalSaved += fractalMath.lastIterationsSaved;
         }
         //divide the sum by the number of iterations
         double averageDuration = totalTime / ((double)iterations);
         System.out.println("Average Time for "+iterations+" iterations of "+fractalMath.maxIter+" precision for: " + averageDuration + " milliseconds");
+        System.out.println("Kernel: " + (fractalMath.useVector ? "vector" : "scalar")
+            + " Precision: " + fractalMath.getPrecisionName()
+            + " Engine: " + fractalMath.getEngineName()
+            + " Threads: " + fractalMath.getTracer().getThreadCount()
+            + " Average steals per frame: " + (totalSteals / (double)iterations)
+            + " Average idle: " + (totalIdle / iterations) + "%"
+            + " Average iterations saved per frame: " + (totalSaved / iterations));
         //close the program when done
         dispose();
 
     }
-
-    /**
-     * draws a line from point A to point B on the image
-     * @param p1 point A
-     * @param p2 point B
-     */
-    public void drawLine(Point p1, Point p2) {
-        if(p2 == null || p1 == null){
-            return;
-        }
-        Graphics g = canvas.getGraphics();
-        g.setColor(Color.GRAY);
-        g.drawLine(p1.x, p1.y, p2.x, p2.y); 
-        g.dispose();
-    }
-
-    /**
-     * draws a small circle on the screen at point A
-     * @param p point A
-     * @param color color of the point
-     */
-    public void drawDot(Point p,Color color) {
-        if(p == null){
-            return;
-        }
-        Graphics g = canvas.getGraphics();
-        g.setColor(color);
-        g.drawOval(p.x, p.y, 2, 2); 
-        g.dispose();
-    }    
 }
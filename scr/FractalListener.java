@@ -19,11 +19,9 @@ public class FractalListener implements KeyListener, MouseListener, MouseMotionL
 
     private FractalFrame frame;
     private Point onDrag;
-    public boolean loadingZoom;
 
     public FractalListener(FractalFrame frame) {
         this.frame = frame;
-        loadingZoom = false;
         frame.addKeyListener(this);
         frame.addMouseListener(this);
         frame.addMouseMotionListener(this);
@@ -49,10 +47,11 @@ public class FractalListener implements KeyListener, MouseListener, MouseMotionL
 
     /* 
      * updates the mouses position every time its moved 
+     * but only draws the path when the fractal is done rendering
      */
     @Override
     public void mouseMoved(MouseEvent e) {
-        if(!loadingZoom) {
+        if(frame.renderScheduler.isIdle()) {
             frame.calculateFractalPath((int)(e.getX()/frame.scale),(int)(e.getY()/frame.scale));
         }
     }
@@ -94,7 +93,39 @@ public class FractalListener implements KeyListener, MouseListener, MouseMotionL
         }
 
         if(e.getKeyCode() == KeyEvent.VK_SPACE){
-            frame.setFilter((frame.fractalMath.filter+1) % 3);
+            frame.nextFilter();
+        }
+
+        if(e.getKeyCode() == KeyEvent.VK_V){
+            frame.toggleVectorKernel();
+        }
+
+        if(e.getKeyCode() == KeyEvent.VK_B){
+            frame.nextEngine();
+        }
+
+        if(e.getKeyCode() == KeyEvent.VK_D){
+            frame.setDistanceEstimation(!frame.fractalMath.useDistanceEstimation);
+        }
+
+        if(e.getKeyCode() == KeyEvent.VK_F){
+            frame.toggleFloat();
+        }
+
+        if(e.getKeyCode() == KeyEvent.VK_A){
+            frame.toggleAntiAlias();
+        }
+
+        if(e.getKeyCode() == KeyEvent.VK_C){
+            frame.nextColorMode();
+        }
+
+        if(e.getKeyCode() == KeyEvent.VK_P){
+            frame.nextPalette();
+        }
+
+        if(e.getKeyCode() == KeyEvent.VK_I){
+            frame.printRenderStats();
         }
 
         if(e.getKeyCode() == KeyEvent.VK_R){
@@ -125,15 +156,10 @@ public class FractalListener implements KeyListener, MouseListener, MouseMotionL
      */
     @Override
     public void mouseWheelMoved(MouseWheelEvent arg0) {
-        if(loadingZoom == true) {
-            return;
-        }
         int notches = arg0.getWheelRotation();
         if(notches < 0){
-            loadingZoom = true;
             frame.updateZoomLevel(0.8);
         } else {
-            loadingZoom = true;
             frame.updateZoomLevel(1.2);
         }
     }
@@ -17,6 +17,15 @@ public class FractalMain {
         //right click to set seed for julia set fractal
         //up/down arrow keys to increase/decrease max iteration count
         //space to change filter
+        //v to switch between the scalar and vector kernels
+        //b to switch between splitting rectangles and following the edges (boundary tracing)
+        //d to fill the discs the distance estimate proves are all the same before tracing (pays off when a minibrot fills the screen)
+        //f to let shallow zooms use the faster float kernels (a few pixels come out slightly different)
+        //a to anti alias the edges of the colors once the frame is done
+        //c to change how the colors are spread out (repeating bands, continuous, histogram)
+        //p to change the palette, the random palette gets new colors every time
+        //i to print render stats
+        //r to reset the fractal back to where it started
         //esc to close program
 
 
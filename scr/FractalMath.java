@@ -3,17 +3,19 @@
  */
 package FractalExplorer.scr;
 
-import java.awt.Color;
-import java.awt.Point;
-import java.util.ArrayList;
-import java.util.List;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
 
 public class FractalMath {
-    //frame of the canvas so that the 
-    //class can bring back data to the frame
-    public FractalFrame frame;
+    //shows the colored pixels, null when the fractal is only rendered into the buffers
+    public FractalDisplay display;
     //fractal calculation algorithim
     private FractalEdgeTrace tracer;
+    //takes over the mandelbrot set once double-doubles run out of precision
+    private FractalDeepZoom deepZoom;
+    //takes over between doubles and the deep zoom engine
+    private FractalDoubleDouble doubleDouble;
     //max amount of iterations per pixel
     public int maxIter;
     // width/height of the canvas
@@ -22,13 +24,58 @@ public class FractalMath {
 
     
     //data used by the program
+    //colors of the pixels, only ever written by colorData()
+    //with a display its whichever of the display's images isnt on screen
     private int[] data;
-    private List<Color> colors;
+    //turns the iteration counts into colors
+    private FractalPalette palette;
+    //extra samples of the pixels on the edges of the colors for the anti aliasing
+    private FractalSupersample supersample;
+    //iteration count of every pixel, the colors and filters are worked out
+    //from these afterwards so changing them never has to calculate anything again
+    private int[] iterations;
+    //what is known about each pixel in the iterations buffer
+    private byte[] pixelState;
+    //one bit per pixel thats set if the pixel is on an edge of the colors,
+    //every row starts on a new long so each thread only writes to its own rows
+    private long[] edges;
+    private int edgeRowWords;
+    //the same for the edges of the iteration counts, the pixels that get anti aliased
+    private long[] countEdges;
+    //where the orbit of every pixel that hit the iteration limit stopped
+    //so raising the limit can carry on from there instead of starting over
+    private double[] orbitReal;
+    private double[] orbitImag;
+    //how far past its iteration count every pixel that escaped got, worked out from how big z was
+    //when it escaped and only kept up to date while the continuous colors are on since they need it
+    private float[] escapeFractions;
+    //true if the frame keeps the escape fractions, so the edge tracer blends them into the rectangles
+    //it fills in and calculates the patches the boundary engine would have filled in
+    private boolean smoothing;
+    private boolean lastSmoothing;
+
+    /*
+     * State 0: Not calculated yet (might still hold a guess from a coarse pass)
+     * State 1: Calculated by one of the fractal kernels
+     * State 2: Filled in by the edge tracer without being calculated
+     * State 3: Calculated in an earlier frame and copied out of the tile cache (no orbit saved)
+     * State 4: Filled in from a distance estimate disc, unlike state 2 the pixels on the rim
+     *          of the disc can be right next to a different iteration count
+     */
+    public static final byte NOT_CALCULATED = 0;
+    public static final byte CALCULATED = 1;
+    public static final byte FILLED = 2;
+    public static final byte CACHED = 3;
+    public static final byte DISC = 4;
 
     // where on the fractal to view
     public double centerReal = -.5;
     public double centerImag = 0;
     public double zoom = 1;
+    //the zoom is always ZOOM_STEP to the power of this so zooming back
+    //out lands on exactly the same zoom (and tiles) as before
+    public int zoomLevel = 0;
+    private static final double ZOOM_STEP = 1.2;
 
     //where the borders are on the fractal to be generated
     private double minReal;
@@ -36,10 +83,62 @@ public class FractalMath {
     private double minImag;
     private double maxImag;
 
+    //top left corner of the view when the borders were last recalculated
+    //dragging only moves panX and panY a whole pixel at a time so a pixel that gets
+    //shifted across the screen still lands on exactly the same point of the fractal
+    private double originReal;
+    private double originImag;
+    private long panX;
+    private long panY;
+    //size of a pixel on the fractal
+    private double realStep;
+    private double imagStep;
+    //true if the origin is 0 so panX and panY count pixels from 0 and the screen
+    //lines up with the tile grid, false when zoomed in too far for a long to count them
+    private boolean onTileGrid;
+    private static final double MAX_GRID = 1L << 53;
+
+    //tiles of the views that were already calculated
+    private FractalTileCache tileCache = new FractalTileCache(64L << 20);
+
+    //view the buffers hold from the last frame that finished
+    //so the next frame can reuse them if it only got dragged
+    private boolean frameComplete;
+    private double lastZoom;
+    private double lastOriginReal;
+    private double lastOriginImag;
+    private long lastPanX;
+    private long lastPanY;
+    //iteration limit the pixels in the buffers were calculated with
+    //lowering maxIter only changes how they get colored so this can be higher than it
+    private int lastMaxIter;
+    private int frameMaxIter;
+    private double lastSeedReal;
+    private double lastSeedImag;
+    private int lastPrecision;
+    private boolean lastUseVector;
+    private int lastEngine;
+    private boolean lastUseDistanceEstimation;
+    //how many pixels the last frame got shifted by
+    public int shiftX;
+    public int shiftY;
+    //true if the last frame carries on the pixels that hit the old iteration limit
+    public boolean limitRaised;
+
     // seed for the julia set fractal
     public double seedReal;
     public double seedImag;
 
+    //one point of the cycle the julia seed's orbit falls into (if it has one)
+    //any orbit that gets within the radius of it is stuck there forever
+    private double cycleReal;
+    private double cycleImag;
+    private double cycleRadiusSqr;
+    public int cyclePeriod;
+    //how many times the critical point is iterated to let it settle into its cycle
+    private static final int CYCLE_SETTLE_ITERATIONS = 20000;
+    private static final int MAX_CYCLE_PERIOD = 1000;
+
     /*
      * Filter 0: Normal
      * Filter 1: Normal But without filling in the empty quadrants
@@ -47,24 +146,200 @@ public class FractalMath {
      */
     public int filter = 0;
 
+    //colors as ARGB ints so nothing in the render core needs AWT
+    public static final int BLACK = 0xff000000;
+    public static final int WHITE = 0xffffffff;
+    public static final int GRAY = 0xff808080;
+    public static final int ORANGE = 0xffffc800;
+    public static final int BLUE = 0xff0000ff;
+    public static final int RED = 0xffff0000;
+
+    /*
+     * Precision 0: Float
+     * Precision 1: Double
+     * Precision 2: Double-Double
+     * Precision 3: Arbitrary (perturbation from a BigDecimal reference orbit)
+     * picked every frame by selectPrecision() depending on how small a pixel is,
+     * floats only get picked if allowFloat is on since the rounding adds up over the
+     * iterations and changes the counts of a few percent of the pixels
+     */
+    public static final int PRECISION_FLOAT = 0;
+    public static final int PRECISION_DOUBLE = 1;
+    public static final int PRECISION_DOUBLE_DOUBLE = 2;
+    public static final int PRECISION_ARBITRARY = 3;
+    public int precision = PRECISION_DOUBLE;
+    //extra bits kept on top of the ones needed to tell pixels apart
+    //since every iteration smudges the last few bits
+    private static final int GUARD_BITS = 6;
+    //lets shallow zooms use the float kernels, faster but not always the same counts as doubles
+    public boolean allowFloat = false;
+
+    //how close an orbit has to come back to an old point to count as stuck in a cycle
+    private double periodicityTolerance;
+    //iterations skipped because a pixel was proven to be inside the set
+    private LongAdder iterationsSaved = new LongAdder();
+    public long lastIterationsSaved;
+    //pixels that went through a kernel this frame and the iteration counts they came out with
+    private LongAdder pixelsIterated = new LongAdder();
+    private LongAdder totalIterations = new LongAdder();
+
+    //work it takes to get a pixel to and from a kernel counted in iterations
+    private static final int PIXEL_COST = 8;
+
+    //how big z squared gets before the escape fraction gets worked out and the most iterations it takes to get there
+    private static final double SMOOTH_BAILOUT = 1e6;
+    private static final int SMOOTH_ITERATIONS = 8;
+    private static final double LOG_2 = Math.log(2);
+    //how far off the blended escape fractions of a rectangle can be from the calculated ones
+    private static final double BLEND_TOLERANCE = 0.01;
+
+    //how many iterations of the mandelbrot set the path under the mouse shows
+    private static final int PATH_ITERATIONS = 100;
+
+    //calculates whole lines of pixels with the vector api instead of one pixel at a time
+    public boolean useVector = false;
+    //null unless the jvm was started with the vector module
+    private static final FractalVectorKernels vectorKernels = FractalVectorKernels.load();
+
+    //how the tracer skips pixels, splitting rectangles with the same border
+    //or following the lines where the iteration count changes
+    public static final int ENGINE_RECTANGLES = 0;
+    public static final int ENGINE_BOUNDARY = 1;
+    public int engine = ENGINE_RECTANGLES;
+    //fills discs the distance estimate proves are all the same before the tracer starts,
+    //only worth it when a minibrot fills a good part of the screen (see FractalDistanceEstimate)
+    public boolean useDistanceEstimation = false;
+    //averages a grid of samples inside every pixel on an edge once the frame is done,
+    //only changes the colors so it doesnt matter to whether the last frame can be reused
+    public boolean antiAlias = false;
+    //points of the line being calculated, one set per thread
+    private ThreadLocal<LineBuffer> lineBuffers = ThreadLocal.withInitial(LineBuffer::new);
+    //escape fraction of the last point that wasnt a pixel, one per thread since the samples get taken on all of them
+    private ThreadLocal<float[]> sampleFraction = ThreadLocal.withInitial(() -> new float[1]);
+
 
     /**
-     * @param frame frame of the canvas
+     * @param display what shows the fractal, null when nothing shows it
      * @param maxIter maxium amount of iterations for each calculation of the fractal
      * @param width width of the canvas
      * @param height height of the canvas
      */
-    public FractalMath(FractalFrame frame, int maxIter, int width, int height) {
-        this.frame = frame;
+    public FractalMath(FractalDisplay display, int maxIter, int width, int height) {
+        this.display = display;
         this.maxIter = maxIter;
         this.width = width;
         this.height = height;
         this.data = new int[width*height];
-        this.tracer = new FractalEdgeTrace(this, data);
-        colors = generateColorPattern(100);
+        this.iterations = new int[width*height];
+        this.pixelState = new byte[width*height];
+        this.edgeRowWords = (width + 63) / 64;
+        this.edges = new long[edgeRowWords * height];
+        this.countEdges = new long[edgeRowWords * height];
+        this.orbitReal = new double[width*height];
+        this.orbitImag = new double[width*height];
+        this.escapeFractions = new float[width*height];
+        this.tracer = new FractalEdgeTrace(this);
+        this.deepZoom = new FractalDeepZoom(this);
+        this.doubleDouble = new FractalDoubleDouble(this);
+        this.palette = new FractalPalette(tracer);
+        this.supersample = new FractalSupersample(this, tracer);
         recalculateBorders();
-        seedReal = 0;
-        seedImag = 0;
+        setSeed(0, 0);
+    }
+
+    /**
+     * changes the seed of the julia set and looks for its attracting cycle
+     * @param real real part of the seed
+     * @param imag imaginary part of the seed
+     * @see FractalFrame#setFractalSeed(int, int)
+     */
+    public void setSeed(double real, double imag){
+        seedReal = real;
+        seedImag = imag;
+        findAttractingCycle();
+    }
+
+    /**
+     * iterates the critical point (0) untill it settles into a cycle,
+     * then finds a radius around the cycle that is guaranteed to shrink 
+     * every time the orbit goes around it so anything inside it cant escape
+     * if the seed has no attracting cycle the radius stays at 0
+     */
+    private void findAttractingCycle(){
+        cycleRadiusSqr = 0;
+        cyclePeriod = 0;
+        if(seedReal == 0 && seedImag == 0){
+            return;
+        }
+        double zReal = 0;
+        double zImag = 0;
+        for(int i = 0; i < CYCLE_SETTLE_ITERATIONS; i++){
+            double temp = zReal*zReal - zImag*zImag + seedReal;
+            zImag = 2 * zReal * zImag + seedImag;
+            zReal = temp;
+            if(zReal*zReal + zImag*zImag > 4){
+                //the critical point escapes so the julia set has no inside
+                return;
+            }
+        }
+
+        //how many steps it takes to come back to the same point
+        double startReal = zReal;
+        double startImag = zImag;
+        int period = 0;
+        for(int i = 1; i <= MAX_CYCLE_PERIOD; i++){
+            double temp = zReal*zReal - zImag*zImag + seedReal;
+            zImag = 2 * zReal * zImag + seedImag;
+            zReal = temp;
+            if(Math.abs(zReal - startReal) < 1e-12 && Math.abs(zImag - startImag) < 1e-12){
+                period = i;
+                break;
+            }
+        }
+        if(period == 0){
+            return;
+        }
+
+        //distance from each cycle point to zero, a disc of radius r around cycle point k
+        //lands inside a disc of radius r * (2|z_k| + r) around cycle point k+1
+        double[] magnitude = new double[period];
+        double multiplier = 1;
+        for(int k = 0; k < period; k++){
+            magnitude[k] = Math.hypot(zReal, zImag);
+            multiplier *= 2 * magnitude[k];
+            double temp = zReal*zReal - zImag*zImag + seedReal;
+            zImag = 2 * zReal * zImag + seedImag;
+            zReal = temp;
+        }
+        if(multiplier >= 1){
+            return;
+        }
+
+        //biggest radius that still comes back at most halfway between the multiplier and 1 times as big
+        double target = (1 + multiplier) / 2;
+        double low = 0;
+        double high = 1;
+        for(int step = 0; step < 60; step++){
+            double radius = (low + high) / 2;
+            double current = radius;
+            for(int k = 0; k < period && current < 10; k++){
+                current *= 2 * magnitude[k] + current;
+            }
+            if(current <= target * radius){
+                low = radius;
+            } else {
+                high = radius;
+            }
+        }
+        //half of it so the small error in the cycle points cant matter
+        double radius = low / 2;
+        if(radius < 1e-9){
+            return;
+        }
+        cycleReal = startReal;
+        cycleImag = startImag;
+        cycleRadiusSqr = radius * radius;
+        cyclePeriod = period;
     }
 
     /**
@@ -74,38 +349,79 @@ public class FractalMath {
      */
     public void resetFractal(){
         maxIter = 100;
-        seedReal = 0;
-        seedImag = 0;
+        setSeed(0, 0);
         centerReal = -0.5f;
         centerImag = 0;
         zoom = 1.0f;
+        zoomLevel = 0;
+        deepZoom.resetCenter();
         recalculateBorders();
         filter = 0;
     }
 
+    /**
+     * jumps straight to a part of the fractal
+     * @param real real part of the center of the screen
+     * @param imag imaginary part of the center of the screen
+     * @param level how many zoom steps to zoom in
+     * @see FractalBenchmark
+     */
+    public void setView(double real, double imag, int level){
+        centerReal = real;
+        centerImag = imag;
+        zoomLevel = level;
+        zoom = Math.pow(ZOOM_STEP, zoomLevel);
+        deepZoom.resetCenter();
+        recalculateBorders();
+    }
+
+    /**
+     * setView but keeping every digit of the center for the deep zoom
+     * and double-double kernels, the rest only needs the closest doubles
+     * @param real real part of the center of the screen
+     * @param imag imaginary part of the center of the screen
+     * @param level how many zoom steps to zoom in
+     * @see FractalBatchRender
+     */
+    public void setView(BigDecimal real, BigDecimal imag, int level){
+        setView(real.doubleValue(), imag.doubleValue(), level);
+        deepZoom.setCenter(real, imag);
+    }
+
     /**
      * updates the offset to act as if your 
      * dragging the fractal around your screen
-     * @param dx change in x
-     * @param dy change in y
+     * @param dx change in x in pixels of the canvas
+     * @param dy change in y in pixels of the canvas
      * @see FractalFrame#updateOffset(int, int)
      */
     public void updateOffset(int dx, int dy) {
-        double realIncrement = (2.5f / zoom) / width;
-        double imagIncrement = (2.0f / zoom) / height;
-        centerReal -= dx * realIncrement;
-        centerImag -= dy * imagIncrement;
-        recalculateBorders();
+        panX -= dx;
+        panY -= dy;
+        //the precise center keeps moving even when the change is too small for a double
+        deepZoom.moveCenter(-dx * realStep, -dy * imagStep);
+        centerReal = deepZoom.centerReal.doubleValue();
+        centerImag = deepZoom.centerImag.doubleValue();
+        minReal = xToReal(0);
+        maxReal = xToReal(width);
+        minImag = yToImag(0);
+        maxImag = yToImag(height);
     }
 
 
     /**
-     * updates how far to zoom into the fractal
+     * updates how far to zoom into the fractal,
+     * rounded to the closest whole number of zoom steps
      * @param zoomFactor
      * @see FractalFrame#updateZoomLevel(double)
      */
     public void updateZoomLevel(double zoomFactor) {
-        zoom *= zoomFactor;
+        int steps = (int) Math.round(Math.log(zoomFactor) / Math.log(ZOOM_STEP));
+        if(steps == 0 && zoomFactor != 1){
+            steps = zoomFactor > 1 ? 1 : -1;
+        }
+        zoomLevel += steps;
+        zoom = Math.pow(ZOOM_STEP, zoomLevel);
         recalculateBorders();
     }
 
@@ -115,83 +431,552 @@ public class FractalMath {
         maxReal = centerReal + 2.5f / zoom;
         minImag = centerImag - 2.0f / zoom;
         maxImag = centerImag + 2.0f / zoom;
+        //from the zoom and not the borders since past a zoom of about 1e16
+        //both borders round to the same double and the step would be 0
+        realStep = (5.0 / zoom) / width;
+        imagStep = (4.0 / zoom) / height;
+        //snaps the screen to the closest pixel of the tile grid
+        double gridX = Math.floor(minReal / realStep);
+        double gridY = Math.floor(minImag / imagStep);
+        onTileGrid = Math.abs(gridX) < MAX_GRID && Math.abs(gridY) < MAX_GRID;
+        if(onTileGrid){
+            originReal = 0;
+            originImag = 0;
+            panX = (long) gridX;
+            panY = (long) gridY;
+        } else {
+            originReal = minReal;
+            originImag = minImag;
+            panX = 0;
+            panY = 0;
+        }
+        minReal = xToReal(0);
+        maxReal = xToReal(width);
+        minImag = yToImag(0);
+        maxImag = yToImag(height);
     }
 
     
+    /**
+     * picks the cheapest precision that can still tell 
+     * two neighbouring pixels apart at the current zoom,
+     * never floats unless they were asked for
+     * @see FractalMath#PRECISION_FLOAT
+     */
+    public void selectPrecision(){
+        double pixelSize = Math.min((5.0 / zoom) / width, (4.0 / zoom) / height);
+        //the orbit goes up to a size of 2 before escaping so that is the biggest number to represent
+        double bitsNeeded = Math.log(4 / pixelSize) / Math.log(2) + GUARD_BITS;
+        //a lot smaller than a pixel so orbits that are just slow to escape dont get caught
+        periodicityTolerance = pixelSize / 10000;
+        if(allowFloat && bitsNeeded <= 24){
+            precision = PRECISION_FLOAT;
+        } else if(bitsNeeded <= 53){
+            precision = PRECISION_DOUBLE;
+        } else if(bitsNeeded <= 106){
+            precision = PRECISION_DOUBLE_DOUBLE;
+        } else {
+            precision = PRECISION_ARBITRARY;
+        }
+    }
+
+    /**
+     * @return how far apart two neighbouring pixels are on the fractal,
+     * the bigger of the two directions if the pixels arent square
+     */
+    public double getPixelSize(){
+        return Math.max((5.0 / zoom) / width, (4.0 / zoom) / height);
+    }
+
+    /**
+     * @return name of the precision the fractal is being calculated with
+     */
+    public String getPrecisionName(){
+        switch(precision){
+            case PRECISION_FLOAT: return "float";
+            case PRECISION_DOUBLE: return "double";
+            case PRECISION_DOUBLE_DOUBLE: return "double-double";
+            default: return "arbitrary";
+        }
+    }
+
+    /**
+     * @return true if the vector kernels got loaded so useVector does anything
+     * @see FractalVectorKernels#load()
+     */
+    public static boolean isVectorAvailable(){
+        return vectorKernels != null;
+    }
+
+    /**
+     * @return name of the engine the tracer uses
+     */
+    public String getEngineName(){
+        return engine == ENGINE_BOUNDARY ? "boundary" : "rectangles";
+    }
+
+    /**
+     * @param cords on the canvas
+     * @return the color the pixel got without any filter in the last colorData()
+     */
     public int getColor(int x, int y) {
-        return data[y * width + x];
+        return colorOf(y * width + x);
     }
 
-     /**
-     * @param numColors number of colors in the list more colors the smoother gradient
-     * @return a list of colors based on the HSB color list
+    /**
+     * @param cords on the canvas
+     * @return the iteration count stored for the pixel cut off at the current limit
+     */
+    public int getIterations(int x, int y) {
+        return Math.min(iterations[y * width + x], maxIter);
+    }
+
+    /**
+     * @return the palette and the way the iteration counts get colored, changing them only needs colorData()
+     */
+    public FractalPalette getPalette() {
+        return palette;
+    }
+
+    /**
+     * @return the anti aliasing samples of the pixels on edges
      */
-    public static List<Color> generateColorPattern(int numColors) {
-        List<Color> colors = new ArrayList<>();
+    public FractalSupersample getSupersample() {
+        return supersample;
+    }
 
-        for (int i = 0; i < numColors; i++) {
-            double hue = (double) i / numColors; 
-            
-            // create a color using the HSB set
-            Color color = Color.getHSBColor((float)hue, 1, 1);
-            //add the color
-            colors.add(color);
+    /**
+     * turns a hue, saturation and brightness into an ARGB color
+     * the same way java.awt.Color#HSBtoRGB does so the core doesnt need AWT
+     * @param hue anywhere on the color wheel, only the part after the decimal point matters
+     * @param saturation from 0 to 1
+     * @param brightness from 0 to 1
+     * @return the color fully opaque
+     */
+    public static int hsbToRgb(float hue, float saturation, float brightness) {
+        int r = 0, g = 0, b = 0;
+        if (saturation == 0) {
+            r = g = b = (int) (brightness * 255.0f + 0.5f);
+        } else {
+            float h = (hue - (float) Math.floor(hue)) * 6.0f;
+            float f = h - (float) Math.floor(h);
+            float p = brightness * (1.0f - saturation);
+            float q = brightness * (1.0f - saturation * f);
+            float t = brightness * (1.0f - (saturation * (1.0f - f)));
+            switch ((int) h) {
+                case 0: r = toByte(brightness); g = toByte(t); b = toByte(p); break;
+                case 1: r = toByte(q); g = toByte(brightness); b = toByte(p); break;
+                case 2: r = toByte(p); g = toByte(brightness); b = toByte(t); break;
+                case 3: r = toByte(p); g = toByte(q); b = toByte(brightness); break;
+                case 4: r = toByte(t); g = toByte(p); b = toByte(brightness); break;
+                case 5: r = toByte(brightness); g = toByte(p); b = toByte(q); break;
+            }
         }
+        return 0xff000000 | (r << 16) | (g << 8) | b;
+    }
 
-        return colors;
+    private static int toByte(float value) {
+        return (int) (value * 255.0f + 0.5f);
     }
 
     /**
-     * colors a pixel on the buffered image canvas depending on the 
-     * number of iteration it took for the calculation to complete
+     * stores the iteration count of a pixel the boundary engine filled in
+     * because every pixel around it had the same count
      * @param cords on the canvas
+     * @param iterations number of iteration the pixels around it took
+     * @return true if it got filled in, false if it had to be calculated
+     * since the continuous colors need its escape fraction
+     * @see FractalBoundaryTrace#renderTile(int, int, int, int)
+     */
+    public boolean fillPixel(int x,int y,int iterations){
+        if(!canFill(iterations)){
+            //every escaped pixel needs its own escape fraction for the continuous colors
+            drawFractal(x, y);
+            return false;
+        }
+        this.iterations[y * width + x] = iterations;
+        pixelState[y * width + x] = FILLED;
+        return true;
+    }
+
+    /**
+     * fills in the inside of a rectangle the edge tracer found the same count all the way around
+     * @param cords of the top left of the rectangle including its border
+     * @param size of the rectangle including its border
+     * @param iterations number of iteration the pixels on the border took
+     * @return how many pixels got filled in without being calculated
+     * @see FractalEdgeTrace#fullRenderRectangle(int, int, int, int, int)
+     */
+    public long fillRectangle(int startX, int startY, int sectorWidth, int sectorHeight, int iterations){
+        if(smoothing && iterations < frameMaxIter){
+            return blendRectangle(startX, startY, sectorWidth, sectorHeight, iterations);
+        }
+        for(int y = startY + 1; y < startY + sectorHeight - 1; y++){
+            for(int x = startX + 1; x < startX + sectorWidth - 1; x++){
+                this.iterations[y * width + x] = iterations;
+                pixelState[y * width + x] = FILLED;
+            }
+        }
+        return (long) (sectorWidth - 2) * (sectorHeight - 2);
+    }
+
+    /**
+     * fills in a rectangle for the continuous colors, which need an escape fraction for every pixel:
+     * 2 to the minus count plus fraction is the potential of the point which changes smoothly
+     * (its harmonic) outside the set, so it can be blended in from the four sides (a coons patch)
+     * and turned back into a fraction, the row and column through the middle get calculated to
+     * check the blend and the quarters get split again untill it matches them
+     * @param cords of the top left of the rectangle including its border
+     * @param size of the rectangle including its border
+     * @param iterations number of iteration the pixels on the border took
+     * @return how many pixels got filled in without being calculated
+     */
+    private long blendRectangle(int startX, int startY, int sectorWidth, int sectorHeight, int iterations){
+        if(sectorWidth <= 2 || sectorHeight <= 2){
+            return 0;
+        }
+        int midX = startX + sectorWidth / 2;
+        int midY = startY + sectorHeight / 2;
+        drawFractalLine(startX + 1, midY, sectorWidth - 2, false);
+        drawFractalLine(midX, startY + 1, sectorHeight - 2, true);
+        boolean matches = true;
+        for(int x = startX + 1; x < startX + sectorWidth - 1 && matches; x++){
+            matches = blendMatches(x, midY, startX, startY, sectorWidth, sectorHeight, iterations);
+        }
+        for(int y = startY + 1; y < startY + sectorHeight - 1 && matches; y++){
+            matches = blendMatches(midX, y, startX, startY, sectorWidth, sectorHeight, iterations);
+        }
+        //the quarters share the middle row and column as their borders
+        int leftWidth = midX - startX + 1;
+        int rightWidth = startX + sectorWidth - midX;
+        int topHeight = midY - startY + 1;
+        int bottomHeight = startY + sectorHeight - midY;
+        if(matches){
+            return blendFill(startX, startY, leftWidth, topHeight, iterations)
+                + blendFill(midX, startY, rightWidth, topHeight, iterations)
+                + blendFill(startX, midY, leftWidth, bottomHeight, iterations)
+                + blendFill(midX, midY, rightWidth, bottomHeight, iterations);
+        }
+        return blendRectangle(startX, startY, leftWidth, topHeight, iterations)
+            + blendRectangle(midX, startY, rightWidth, topHeight, iterations)
+            + blendRectangle(startX, midY, leftWidth, bottomHeight, iterations)
+            + blendRectangle(midX, midY, rightWidth, bottomHeight, iterations);
+    }
+
+    /**
+     * @param cords of a pixel that just got calculated inside the rectangle
+     * @param rectangle the blend is from, including its border
+     * @param iterations number of iteration the pixels on the border took
+     * @return true if the pixel has the count of the border and the blend gets its fraction close enough
+     */
+    private boolean blendMatches(int x, int y, int startX, int startY, int sectorWidth, int sectorHeight, int iterations){
+        int index = y * width + x;
+        if(this.iterations[index] != iterations){
+            return false;
+        }
+        double blended = blendPotential(x, y, startX, startY, sectorWidth, sectorHeight, iterations);
+        return Math.abs(-Math.log(blended) / LOG_2 - escapeFractions[index]) <= BLEND_TOLERANCE;
+    }
+
+    /**
+     * fills the inside of a rectangle with the count of its border and the blended escape fractions
+     * @return how many pixels got filled in
+     */
+    private long blendFill(int startX, int startY, int sectorWidth, int sectorHeight, int iterations){
+        for(int y = startY + 1; y < startY + sectorHeight - 1; y++){
+            for(int x = startX + 1; x < startX + sectorWidth - 1; x++){
+                int index = y * width + x;
+                this.iterations[index] = iterations;
+                pixelState[index] = FILLED;
+                double blended = blendPotential(x, y, startX, startY, sectorWidth, sectorHeight, iterations);
+                escapeFractions[index] = (float) (-Math.log(blended) / LOG_2);
+            }
+        }
+        return (long) Math.max(sectorWidth - 2, 0) * Math.max(sectorHeight - 2, 0);
+    }
+
+    /**
+     * blends the potential of a pixel in from the four sides of the rectangle around it
+     * @param cords of the pixel
+     * @param rectangle around it including its border
+     * @param iterations count the potential is measured from
+     * @return 2 to the minus the count past iterations plus the escape fraction it should have
+     */
+    private double blendPotential(int x, int y, int startX, int startY, int sectorWidth, int sectorHeight, int iterations){
+        int right = startX + sectorWidth - 1;
+        int bottom = startY + sectorHeight - 1;
+        double u = (double) (x - startX) / (sectorWidth - 1);
+        double v = (double) (y - startY) / (sectorHeight - 1);
+        double sides = (1 - v) * potential(x, startY, iterations) + v * potential(x, bottom, iterations)
+            + (1 - u) * potential(startX, y, iterations) + u * potential(right, y, iterations);
+        double corners = (1 - u) * (1 - v) * potential(startX, startY, iterations) + u * (1 - v) * potential(right, startY, iterations)
+            + (1 - u) * v * potential(startX, bottom, iterations) + u * v * potential(right, bottom, iterations);
+        return Math.max(sides - corners, Double.MIN_NORMAL);
+    }
+
+    /**
+     * @param cords on the canvas
+     * @param iterations count the potential is measured from
+     * @return 2 to the minus the pixel's count past iterations plus its escape fraction
+     */
+    private double potential(int x, int y, int iterations){
+        int index = y * width + x;
+        return Math.pow(2, iterations - this.iterations[index] - escapeFractions[index]);
+    }
+
+    /**
+     * @param iterations number of iteration the pixels around it took
+     * @return false if a pixel with that count has to be calculated to get
+     * its escape fraction for the continuous colors
+     */
+    public boolean canFill(int iterations){
+        return !smoothing || iterations >= frameMaxIter;
+    }
+
+    /**
+     * stores the iteration count of a pixel inside a disc the distance estimate
+     * proved is all the same, the edge checks dont skip these like filled pixels
+     * @param cords on the canvas
+     * @param iterations number of iteration the pixel in the middle of the disc took
+     * @see FractalDistanceEstimate#fillDiscs()
+     */
+    public void fillDiscPixel(int x,int y,int iterations){
+        this.iterations[y * width + x] = iterations;
+        pixelState[y * width + x] = DISC;
+    }
+
+    /**
+     * stores the iteration count of a pixel that just got calculated
+     * @param index of the pixel in the buffers
      * @param iterations number of iteration it took to solve fractal
-     * @see this{@link #generateColorPattern(int)}
-     * @see this{@link #data}
      */
-    public void setColor(int x,int y,int iterations){
-        int color = 0;
-        if (iterations == maxIter ) {
-            color = Color.BLACK.getRGB(); // color pixel black
-        } else if (iterations == 0){
-            color = Color.WHITE.getRGB(); // color pixel white
-        }else {
-            color = colors.get(iterations%colors.size()).getRGB(); // color pixel based on a gradient
+    private void storePixel(int index, int iterations){
+        this.iterations[index] = iterations;
+        pixelState[index] = CALCULATED;
+    }
+
+    /**
+     * @param index of the pixel in the buffers
+     * @return the color of the pixel, black at or over the limit and white for 0,
+     * in between the colors of two counts if the frame kept the escape fractions
+     * @see FractalPalette#colorOf(int)
+     * @see FractalPalette#smoothColorOf(int, float)
+     */
+    private int colorOf(int index){
+        if(blendsFractions()){
+            return palette.smoothColorOf(iterations[index], escapeFractions[index]);
+        }
+        return palette.colorOf(iterations[index]);
+    }
+
+    /**
+     * @return true if the colors are in between the colors of two counts by the escape fractions,
+     * only once the frame kept them since switching to the continuous colors renders it again
+     */
+    private boolean blendsFractions(){
+        return smoothing && palette.mode == FractalPalette.MODE_CONTINUOUS;
+    }
+
+    /**
+     * gives a whole block of pixels the iteration count of its top left pixel
+     * (and its escape fraction) like a single big pixel without marking them as calculated, used for the coarse passes
+     * @param cords of the top left of the block
+     * @param size width and height of the block
+     * @param iterations number of iteration it took to solve the top left pixel
+     * @see FractalEdgeTrace#renderBlocks(int)
+     */
+    public void fillBlock(int x, int y, int size, int iterations){
+        for(int j = y; j < Math.min(y + size, height); j++){
+            for(int i = x; i < Math.min(x + size, width); i++){
+                if(pixelState[j * width + i] == NOT_CALCULATED){
+                    this.iterations[j * width + i] = iterations;
+                    escapeFractions[j * width + i] = escapeFractions[y * width + x];
+                }
+            }
         }
-        
-        data[y * width + x] = color;
     }
 
 
     /**
-     * loops through the data and sets all the pixels 
-     * in the canvas as pixels arcording to the data
-     * and if the filter is set to it apply a edge filter
-     * @see this{@link #setColor(int, int, int)
-     * @see FractalFrame#canvas
+     * turns the iteration counts into colors a few rows per thread 
+     * with the filter applied and sets all the pixels in the canvas to them,
+     * nothing gets calculated so changing the filter only needs this
+     * @see this{@link #iterations}
+     * @see FractalFrame#showPixels(int[], int, int)
      * @see this{@link #data}
      */
     public void colorData(){
-
+        FractalRenderEvents.ColorEvent event = new FractalRenderEvents.ColorEvent();
+        event.begin();
+        long startTime = System.nanoTime();
+        int fillColor = WHITE;
+        palette.prepare(iterations, width, maxIter);
+        //colors straight into the display's image so showing it is only a swap
+        int[] backBuffer = display != null ? display.getBackBuffer() : null;
+        if(backBuffer != null){
+            data = backBuffer;
+        }
+        //the edge filter looks for the colors changing so it gets the colors without blending
+        boolean blend = antiAlias && filter == 0 && supersample.isSampled();
+        tracer.forEachRow(y -> {
+            for (int x = 0; x < width; x++) {
+                int pixelIndex = y * width + x;
+                if(filter == 1 && (pixelState[pixelIndex] == FILLED || pixelState[pixelIndex] == DISC)){
+                    //shows the rectangles the tracer skipped and the discs
+                    data[pixelIndex] = fillColor;
+                } else {
+                    data[pixelIndex] = colorOf(pixelIndex);
+                }
+            }
+            if(blend){
+                supersample.blendRow(y, data, palette, blendsFractions());
+            }
+        });
         if(filter == 2){
-            int[] filterArr = new int[width * height];
-            for (int y = 0; y < height; y++) {
+            //every row needs the colors of the rows next to it so the edges wait for all of them
+            boolean skipFilled = !blendsFractions();
+            tracer.forEachRow(y -> findEdges(y, data, edges, skipFilled));
+            int edgeColor = GRAY;
+            tracer.forEachRow(y -> {
                 for (int x = 0; x < width; x++) {
-                    int pixelIndex = y * width + x;
-                    int edgeStrength = tracer.computeEdgeStrength(x, y);
-                    if(edgeStrength != 0){
-                        edgeStrength = Color.GRAY.getRGB();
-                    } else {
-                        edgeStrength = 0;
-                    }
-                    filterArr[pixelIndex] = edgeStrength;
+                    data[y * width + x] = isEdge(x, y) ? edgeColor : 0;
                 }
+            });
+        }
+        //nothing to show it on when its only rendered into the buffers
+        long displayStart = System.nanoTime();
+        if(display != null){
+            display.showPixels(data, width, height);
+        }
+        long endTime = System.nanoTime();
+        tracer.stats.recordColor(endTime - startTime, endTime - displayStart);
+        event.end();
+        if(event.shouldCommit()){
+            event.filter = filter;
+            event.mode = palette.getModeName();
+            event.pixels = width * height;
+            event.displayTime = endTime - displayStart;
+            event.commit();
+        }
+    }
+
+    /**
+     * marks every pixel of the row that has a different value than
+     * one of the 8 pixels around it in a bitmap, the colors for the edge filter
+     * and the iteration counts for the anti aliasing so both find them the same way,
+     * pixels the edge tracer filled in can be skipped when the values only depend on the count
+     * since everything around them was in the same rectangle with the same count,
+     * not when the colors blend in escape fractions since those change across a filled rectangle,
+     * the distance estimate discs are never skipped since their rim can be on an edge
+     * @param y row of the canvas
+     * @param values of every pixel a row at a time
+     * @param bitmap gets the bits of the row
+     * @param skipFilled true if the values are the same wherever the count is
+     * @see this{@link #edges}
+     * @see this{@link #countEdges}
+     */
+    private void findEdges(int y, int[] values, long[] bitmap, boolean skipFilled){
+        Arrays.fill(bitmap, y * edgeRowWords, (y + 1) * edgeRowWords, 0L);
+        boolean middleRow = y > 0 && y < height - 1;
+        for (int x = 0; x < width; x++) {
+            int index = y * width + x;
+            if(skipFilled && pixelState[index] == FILLED){
+                continue;
+            }
+            int value = values[index];
+            boolean edge;
+            if(middleRow && x > 0 && x < width - 1){
+                //no need to check if the pixels around it are on the canvas
+                int above = index - width;
+                int below = index + width;
+                edge = values[above - 1] != value || values[above] != value || values[above + 1] != value
+                    || values[index - 1] != value || values[index + 1] != value
+                    || values[below - 1] != value || values[below] != value || values[below + 1] != value;
+            } else {
+                edge = differsFromNeighbours(x, y, values, value);
+            }
+            if(edge){
+                bitmap[y * edgeRowWords + (x >>> 6)] |= 1L << (x & 63);
             }
-            frame.canvas.setRGB(0, 0, width, height, filterArr, 0, width);
-        } else {
-            frame.canvas.setRGB(0, 0, width, height, data, 0, width);
         }
-        frame.fractalListener.loadingZoom = false;
+    }
+
+    /**
+     * slower version of the check in findEdges for the pixels along the sides of the canvas
+     * @param cords on the canvas
+     * @param values of every pixel a row at a time
+     * @param value of the pixel
+     * @return true if any of the pixels around it on the canvas has a different value
+     */
+    private boolean differsFromNeighbours(int x, int y, int[] values, int value){
+        for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, height - 1); j++) {
+            for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, width - 1); i++) {
+                if(values[j * width + i] != value){
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param cords on the canvas
+     * @return true if the pixel was on an edge the last time the edges were found
+     * @see this{@link #findEdges(int, int[], long[], boolean)}
+     */
+    public boolean isEdge(int x, int y){
+        return (edges[y * edgeRowWords + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    /**
+     * marks the pixels of a row where the iteration count changes, the row only
+     * reads the counts of the rows next to it so every thread can do its own rows
+     * while it samples them instead of waiting for the whole frame
+     * @param y row of the canvas
+     * @see FractalSupersample#sampleEdges()
+     */
+    public void findCountEdges(int y){
+        findEdges(y, iterations, countEdges, true);
+    }
+
+    /**
+     * @param cords on the canvas
+     * @return true if the iteration count of the pixel was different to one of the pixels
+     * around it the last time the row was looked at
+     * @see this{@link #findCountEdges(int)}
+     */
+    public boolean isCountEdge(int x, int y){
+        return (countEdges[y * edgeRowWords + (x >>> 6)] & (1L << (x & 63))) != 0;
+    }
+
+    /**
+     * @param cords on the canvas
+     * @return true if the pixel has been calculated, filled in or loaded this frame
+     */
+    public boolean isKnown(int x, int y){
+        return pixelState[y * width + x] != NOT_CALCULATED;
+    }
+
+    /**
+     * @param cords on the canvas
+     * @return how the pixel got its iteration count, one of the states above
+     */
+    public byte getPixelState(int x, int y){
+        return pixelState[y * width + x];
+    }
+
+    /**
+     * @param cords on the canvas
+     * @return roughly how much work the pixel was in the frame that just finished,
+     * its iterations if a kernel calculated it and next to nothing if it got filled in
+     * @see FractalEdgeTrace#calculateEdgeFractal()
+     */
+    public int pixelCost(int x, int y){
+        int index = y * width + x;
+        if(pixelState[index] == CALCULATED){
+            return Math.min(iterations[index], frameMaxIter) + PIXEL_COST;
+        }
+        return 1;
     }
 
     /**
@@ -201,29 +986,192 @@ public class FractalMath {
      * @see this{@link #juliaSet(int, int)}
      */
     public int drawFractal(int x, int y){
-        int iter = 0;
-        if(seedImag == 0 && seedReal == 0){
+        int iter = iterations[y * width + x];
+        if(pixelState[y * width + x] != NOT_CALCULATED){
+            //already calculated by an earlier pass or frame
+            return iter;
+        }
+        iter = calculatePixel(x, y);
+        pixelsIterated.increment();
+        totalIterations.add(iter);
+        storePixel(y * width + x, iter);
+        return iter;
+    }
+
+    /**
+     * runs the kernel for the pixel without looking at or storing its iteration count
+     * @param cords on the canvas
+     * @return the number of iterations it takes to complete calculation
+     */
+    public int calculatePixel(int x, int y){
+        int iter;
+        boolean mandelbrot = seedImag == 0 && seedReal == 0;
+        if(deepZoom.isActive()){
+            iter = deepZoom.mandelbrotSet(x, y, y * width + x);
+        } else if(precision >= PRECISION_DOUBLE_DOUBLE){
+            //julia sets dont have a deep zoom engine so they stay at double-double
+            iter = mandelbrot ? doubleDouble.mandelbrotSet(x, y, y * width + x) : doubleDouble.juliaSet(x, y, y * width + x);
+        } else if(precision == PRECISION_FLOAT){
+            iter = mandelbrot ? mandelbrotSetFloat(x, y) : juliaSetFloat(x, y);
+        } else if(mandelbrot){
             iter = mandelbrotSet(x, y);
         } else {
             iter = juliaSet(x,y);
         }
-        setColor(x, y, iter);
         return iter;
     }
 
+    /**
+     * runs the kernel for any point on the canvas, not just the middle of a pixel,
+     * always with doubles or better since the samples are for the pictures that should look the best,
+     * no orbit gets saved and while the frame keeps the escape fractions the sample gets one too
+     * so it can be colored the same way as the pixels
+     * @param cords on the canvas, the pixel x, y is at exactly x, y
+     * @param fractions where the escape fraction of the sample goes
+     * @param slot of the sample in fractions
+     * @return the number of iterations it takes to complete calculation
+     * @see FractalSupersample
+     */
+    public int calculateSample(double x, double y, float[] fractions, int slot){
+        float[] fraction = sampleFraction.get();
+        fraction[0] = 0;
+        int iter = sampleIterations(x, y);
+        fractions[slot] = fraction[0];
+        return iter;
+    }
+
+    /**
+     * @see this{@link #calculateSample(double, double, float[], int)}
+     */
+    private int sampleIterations(double x, double y){
+        boolean mandelbrot = seedImag == 0 && seedReal == 0;
+        if(deepZoom.isActive()){
+            return deepZoom.mandelbrotSet(x, y, -1);
+        }
+        if(precision >= PRECISION_DOUBLE_DOUBLE){
+            return mandelbrot ? doubleDouble.mandelbrotSet(x, y, -1) : doubleDouble.juliaSet(x, y, -1);
+        }
+        double real = originReal + (x + panX) * realStep;
+        double imag = originImag + (y + panY) * imagStep;
+        if(!mandelbrot){
+            return juliaOrbit(-1, real, imag, 1);
+        }
+        if(insideMainBulbs(real, imag)){
+            return maxIter;
+        }
+        return mandelbrotOrbit(-1, real, imag, 0, 0, 1);
+    }
+
+
+    /**
+     * draws a line of pixels going right or down from the cordinates
+     * using the vector kernels if they are turned on
+     * @param cords of the first pixel
+     * @param length how many pixels in the line
+     * @param vertical true to go down, false to go right
+     * @see this{@link #drawFractal(int, int)}
+     * @see FractalVectorKernels
+     */
+    public void drawFractalLine(int x, int y, int length, boolean vertical){
+        if(length <= 0){
+            return;
+        }
+        if(!useVector || vectorKernels == null || precision > PRECISION_DOUBLE){
+            for(int k = 0; k < length; k++){
+                if(vertical){
+                    drawFractal(x, y + k);
+                } else {
+                    drawFractal(x + k, y);
+                }
+            }
+            return;
+        }
+
+        LineBuffer line = lineBuffers.get();
+        boolean mandelbrot = seedImag == 0 && seedReal == 0;
+        //only the points that arent already known to be in the set go to the kernel
+        int count = 0;
+        int calculated = 0;
+        long lineIterations = 0;
+        for(int k = 0; k < length; k++){
+            double real = vertical ? xToReal(x) : xToReal(x + k);
+            double imag = vertical ? yToImag(y + k) : yToImag(y);
+            int pixelIndex = vertical ? (y + k) * width + x : y * width + x + k;
+            if(pixelState[pixelIndex] != NOT_CALCULATED){
+                //stays the way it is, a cached pixel marked as calculated would get resumed without an orbit
+                continue;
+            }
+            if(mandelbrot && insideMainBulbs(real, imag)){
+                storePixel(pixelIndex, maxIter);
+                iterationsSaved.add(maxIter - 1);
+                calculated++;
+                lineIterations += maxIter;
+                continue;
+            }
+            line.real[count] = real;
+            line.imag[count] = imag;
+            line.index[count] = k;
+            count++;
+        }
+        long saved;
+        if(precision == PRECISION_FLOAT && mandelbrot){
+            saved = vectorKernels.mandelbrotSetFloat(line.real, line.imag, line.results, line.orbitReal, line.orbitImag,
+                count, maxIter, Math.max(periodicityTolerance, 1e-6));
+        } else if(precision == PRECISION_FLOAT){
+            saved = vectorKernels.juliaSetFloat(line.real, line.imag, line.results, line.orbitReal, line.orbitImag,
+                count, maxIter, seedReal, seedImag, cycleReal, cycleImag, cycleRadiusSqr);
+        } else if(mandelbrot){
+            saved = vectorKernels.mandelbrotSet(line.real, line.imag, line.results, line.orbitReal, line.orbitImag,
+                count, maxIter, periodicityTolerance);
+        } else {
+            saved = vectorKernels.juliaSet(line.real, line.imag, line.results, line.orbitReal, line.orbitImag,
+                count, maxIter, seedReal, seedImag, cycleReal, cycleImag, cycleRadiusSqr);
+        }
+        iterationsSaved.add(saved);
+        for(int j = 0; j < count; j++){
+            int k = line.index[j];
+            int pixelIndex = vertical ? (y + k) * width + x : y * width + x + k;
+            lineIterations += line.results[j];
+            if(line.results[j] == maxIter){
+                orbitReal[pixelIndex] = line.orbitReal[j];
+                orbitImag[pixelIndex] = line.orbitImag[j];
+            } else {
+                saveEscape(pixelIndex, line.orbitReal[j], line.orbitImag[j],
+                    mandelbrot ? line.real[j] : seedReal, mandelbrot ? line.imag[j] : seedImag, line.results[j]);
+            }
+            storePixel(pixelIndex, line.results[j]);
+        }
+        pixelsIterated.add(calculated + count);
+        totalIterations.add(lineIterations);
+    }
+
+    /**
+     * points of a line of pixels so the vector kernels 
+     * dont need new arrays every time they get called
+     */
+    private class LineBuffer {
+        double[] real = new double[Math.max(width, height)];
+        double[] imag = new double[Math.max(width, height)];
+        int[] results = new int[Math.max(width, height)];
+        double[] orbitReal = new double[Math.max(width, height)];
+        double[] orbitImag = new double[Math.max(width, height)];
+        int[] index = new int[Math.max(width, height)];
+    }
     
     /**
-     * chooses which fractal to use to draw the path
+     * chooses which fractal to use to calculate the path
      * @param cords to start the path
-     * @see this{@link #drawMandelBrotSetPath(int, int)}
-     * @see this{@link #drawJuliaSetPath(int, int)}
+     * @param orbit where the pixels of the path get stored
+     * @see this{@link #mandelbrotSetPath(int, int, FractalOrbitOverlay)}
+     * @see this{@link #juliaSetPath(int, int, FractalOrbitOverlay)}
      */
-    public void drawFractalPath(int x, int y){
+    public void calculateFractalPath(int x, int y, FractalOrbitOverlay orbit){
         if(seedImag == 0 && seedReal == 0){
-            drawMandelBrotSetPath(x, y);
+            mandelbrotSetPath(x, y, orbit);
         } else {
-            drawJuliaSetPath(x,y);
+            juliaSetPath(x,y, orbit);
         }
+        orbit.visible = true;
     }
 
 
@@ -234,13 +1182,32 @@ public class FractalMath {
      * @return the number of iterations it takes to complete calculation
      */
     public int mandelbrotSet(int x, int y) {
-        double real = minReal + x * (maxReal - minReal) / width;
-        double imag = minImag + y * (maxImag - minImag) / height;
-        int i = 1;
-        double zReal = 0;
-        double zImag = 0;
-        double realSqr = 0;
-        double imagSqr = 0;
+        double real = xToReal(x);
+        double imag = yToImag(y);
+        if(insideMainBulbs(real, imag)){
+            iterationsSaved.add(maxIter - 1);
+            return maxIter;
+        }
+        return mandelbrotOrbit(y * width + x, real, imag, 0, 0, 1);
+    }
+
+    /**
+     * carries on the orbit of a point of the mandelbrot set from wherever it is
+     * and saves where it stopped if it hit the iteration limit
+     * @param index of the pixel in the buffers
+     * @param point on the fractal
+     * @param z where the orbit is right now
+     * @param i how many iterations it took to get there
+     * @return the number of iterations it takes to complete calculation
+     */
+    private int mandelbrotOrbit(int index, double real, double imag, double zReal, double zImag, int i) {
+        double realSqr = zReal*zReal;
+        double imagSqr = zImag*zImag;
+        //point the orbit is compared against to find cycles (brent's algorithm)
+        double checkReal = zReal;
+        double checkImag = zImag;
+        int checkLength = 1;
+        int sinceCheck = 0;
 
         //run as long as it does not escape the fractal or exeeds the iteration limit
         while ((realSqr + imagSqr) < 4 && i < maxIter) {
@@ -251,9 +1218,91 @@ public class FractalMath {
             //only calc the squared real and imag for optimization
             realSqr = zReal*zReal;
             imagSqr = zImag*zImag;
+
+            //the orbit came back to where it was so it will loop forever and never escape
+            if(Math.abs(zReal - checkReal) < periodicityTolerance && Math.abs(zImag - checkImag) < periodicityTolerance){
+                iterationsSaved.add(maxIter - i);
+                return saveOrbit(index, zReal, zImag);
+            }
+            //check against a new point after twice as many iterations each time
+            sinceCheck++;
+            if(sinceCheck == checkLength){
+                checkReal = zReal;
+                checkImag = zImag;
+                checkLength *= 2;
+                sinceCheck = 0;
+            }
+        }
+
+        return i == maxIter ? saveOrbit(index, zReal, zImag) : saveEscape(index, zReal, zImag, real, imag, i);
+    }
+
+    /**
+     * remembers where the orbit of a pixel that never escaped stopped
+     * @param index of the pixel in the buffers, -1 for a point thats not a pixel
+     * @param z where the orbit stopped
+     * @return the iteration limit
+     * @see this{@link #resumePixel(int, int)}
+     */
+    private int saveOrbit(int index, double zReal, double zImag) {
+        if(index >= 0){
+            orbitReal[index] = zReal;
+            orbitImag[index] = zImag;
         }
+        return maxIter;
+    }
 
-        return i;
+    /**
+     * works out how far past its iteration count a pixel that escaped got, only while the frame
+     * keeps the escape fractions, z is only just past 2 when it escapes so c still pulls it around
+     * a lot, a few more iterations get it far enough out that every iteration just squares it
+     * and then i + 1 - log2(log2|z|) counts how many iterations it was from that far out
+     * @param index of the pixel in the buffers, -1 for a point thats not a pixel
+     * which keeps it for calculateSample instead
+     * @param z the moment it got past the bailout
+     * @param c what gets added every iteration, the point for the mandelbrot set and the seed for julia sets
+     * @param iterations number of iteration it took to escape
+     * @return the iteration count
+     * @see FractalPalette#smoothColorOf(int, float)
+     */
+    public int saveEscape(int index, double zReal, double zImag, double cReal, double cImag, int iterations) {
+        if(!smoothing){
+            return iterations;
+        }
+        double magnitude = zReal*zReal + zImag*zImag;
+        int extra = 0;
+        while(magnitude < SMOOTH_BAILOUT && extra < SMOOTH_ITERATIONS){
+            double temp = zReal*zReal - zImag*zImag + cReal;
+            zImag = 2 * zReal * zImag + cImag;
+            zReal = temp;
+            magnitude = zReal*zReal + zImag*zImag;
+            extra++;
+        }
+        //log2|z| is half of log2 of z squared
+        double logSize = Math.log(magnitude) / LOG_2 / 2;
+        float fraction = (float) (extra + 1 - Math.log(logSize) / LOG_2);
+        if(index < 0){
+            sampleFraction.get()[0] = fraction;
+        } else {
+            escapeFractions[index] = fraction;
+        }
+        return iterations;
+    }
+
+    /**
+     * checks if the point is inside the main cardioid 
+     * or the big circle to the left of it where 
+     * every point is in the set without iterating
+     * @param point on the fractal
+     * @return true if its inside either of them
+     */
+    public static boolean insideMainBulbs(double real, double imag) {
+        double imagSqr = imag * imag;
+        double q = (real - 0.25) * (real - 0.25) + imagSqr;
+        if(q * (q + (real - 0.25)) <= imagSqr / 4){
+            return true;
+        }
+        return (real + 1) * (real + 1) + imagSqr <= 1.0 / 16;
     }
 
     /**
@@ -262,9 +1311,18 @@ public class FractalMath {
     * @return The number of iterations it takes to complete the calculation
     */
     public int juliaSet(int x, int y) {
-        double zReal = minReal + x * (maxReal - minReal) / width;
-        double zImag = minImag + y * (maxImag - minImag) / height;
-        int i = 1;
+        return juliaOrbit(y * width + x, xToReal(x), yToImag(y), 1);
+    }
+
+    /**
+     * carries on the orbit of a point of the julia set from wherever it is
+     * and saves where it stopped if it hit the iteration limit
+     * @param index of the pixel in the buffers
+     * @param z where the orbit is right now
+     * @param i how many iterations it took to get there
+     * @return The number of iterations it takes to complete the calculation
+     */
+    private int juliaOrbit(int index, double zReal, double zImag, int i) {
         double realSqr = zReal*zReal;
         double imagSqr = zImag*zImag;
         //run as long as it does not escape the fractal or exeeds the iteration limit
@@ -276,76 +1334,184 @@ public class FractalMath {
             //only calc the squared real and imag for optimization
             realSqr = zReal*zReal;
             imagSqr = zImag*zImag;
+
+            //fell into the seed's attracting cycle so it will never escape
+            double cycleDistReal = zReal - cycleReal;
+            double cycleDistImag = zImag - cycleImag;
+            if(cycleDistReal*cycleDistReal + cycleDistImag*cycleDistImag < cycleRadiusSqr){
+                iterationsSaved.add(maxIter - i);
+                return saveOrbit(index, zReal, zImag);
+            }
         }
 
-        return i;
+        return i == maxIter ? saveOrbit(index, zReal, zImag) : saveEscape(index, zReal, zImag, seedReal, seedImag, i);
     }
     
 
+    /**
+     * @param z point of an orbit of the julia set
+     * @return true if the point fell into the seed's attracting cycle so it will never escape
+     * @see this{@link #findAttractingCycle()}
+     */
+    public boolean inAttractingCycle(double zReal, double zImag){
+        double cycleDistReal = zReal - cycleReal;
+        double cycleDistImag = zImag - cycleImag;
+        return cycleDistReal*cycleDistReal + cycleDistImag*cycleDistImag < cycleRadiusSqr;
+    }
+
+    /**
+     * mandelbrotSet but with floats for when the zoom is shallow enough
+     * @see this{@link #mandelbrotSet(int, int)}
+     */
+    public int mandelbrotSetFloat(int x, int y) {
+        if(insideMainBulbs(xToReal(x), yToImag(y))){
+            iterationsSaved.add(maxIter - 1);
+            return maxIter;
+        }
+        return mandelbrotOrbitFloat(y * width + x, (float) xToReal(x), (float) yToImag(y), 0, 0, 1);
+    }
+
+    /**
+     * mandelbrotOrbit but with floats
+     * @see this{@link #mandelbrotOrbit(int, double, double, double, double, int)}
+     */
+    private int mandelbrotOrbitFloat(int index, float real, float imag, float zReal, float zImag, int i) {
+        float realSqr = zReal*zReal;
+        float imagSqr = zImag*zImag;
+        float checkReal = zReal;
+        float checkImag = zImag;
+        int checkLength = 1;
+        int sinceCheck = 0;
+        //floats cant get much closer than this
+        float tolerance = (float) Math.max(periodicityTolerance, 1e-6);
+
+        while ((realSqr + imagSqr) < 4 && i < maxIter) {
+            zImag = 2 * zReal * zImag + imag;
+            zReal = realSqr - imagSqr + real;
+            i++;
+            realSqr = zReal*zReal;
+            imagSqr = zImag*zImag;
+
+            if(Math.abs(zReal - checkReal) < tolerance && Math.abs(zImag - checkImag) < tolerance){
+                iterationsSaved.add(maxIter - i);
+                return saveOrbit(index, zReal, zImag);
+            }
+            sinceCheck++;
+            if(sinceCheck == checkLength){
+                checkReal = zReal;
+                checkImag = zImag;
+                checkLength *= 2;
+                sinceCheck = 0;
+            }
+        }
+
+        return i == maxIter ? saveOrbit(index, zReal, zImag) : saveEscape(index, zReal, zImag, real, imag, i);
+    }
+
+    /**
+     * juliaSet but with floats for when the zoom is shallow enough
+     * @see this{@link #juliaSet(int, int)}
+     */
+    public int juliaSetFloat(int x, int y) {
+        return juliaOrbitFloat(y * width + x, (float) xToReal(x), (float) yToImag(y), 1);
+    }
+
+    /**
+     * juliaOrbit but with floats
+     * @see this{@link #juliaOrbit(int, double, double, int)}
+     */
+    private int juliaOrbitFloat(int index, float zReal, float zImag, int i) {
+        float cReal = (float) seedReal;
+        float cImag = (float) seedImag;
+        float realSqr = zReal*zReal;
+        float imagSqr = zImag*zImag;
+        float cycleR = (float) cycleReal;
+        float cycleI = (float) cycleImag;
+        float radiusSqr = (float) cycleRadiusSqr;
+        while ((realSqr + imagSqr) < 4 && i < maxIter) {
+            zImag = 2 * zReal * zImag + cImag;
+            zReal = realSqr - imagSqr + cReal;
+            i++;
+            realSqr = zReal*zReal;
+            imagSqr = zImag*zImag;
+
+            float cycleDistReal = zReal - cycleR;
+            float cycleDistImag = zImag - cycleI;
+            if(cycleDistReal*cycleDistReal + cycleDistImag*cycleDistImag < radiusSqr){
+                iterationsSaved.add(maxIter - i);
+                return saveOrbit(index, zReal, zImag);
+            }
+        }
+
+        return i == maxIter ? saveOrbit(index, zReal, zImag) : saveEscape(index, zReal, zImag, cReal, cImag, i);
+    }
 
     /**
-     * draws the path the fractal takes at that point and draws it on the canvas
+     * calculates the path the fractal takes at that point
      * @param cordinate on the canvas
+     * @param orbit where the pixels of the path get stored
      */
-    public void drawMandelBrotSetPath(int x, int y) {
-        ArrayList<Double> realPoint = new ArrayList<Double>();
-        ArrayList<Double> imagPoint = new ArrayList<Double>();
-        double real = minReal + x * (maxReal - minReal) / width;
-        double imag = minImag + y * (maxImag - minImag) / height;
+    public void mandelbrotSetPath(int x, int y, FractalOrbitOverlay orbit) {
+        orbit.ensureCapacity(PATH_ITERATIONS);
+        double real = xToReal(x);
+        double imag = yToImag(y);
         int i = 1;
         double zReal = 0;
         double zImag = 0;
         double realSqr = 0;
         double imagSqr = 0;
-
-        Point prev = null;
-        Point current = null;
+        double realPoints = 0;
+        double imagPoints = 0;
+        int points = 0;
 
         //run as long as it does not escape the fractal or exeeds the iteration limit
-        while ((zReal * zReal) + (zImag * zImag) < 4 && i < 100) {
+        while ((zReal * zReal) + (zImag * zImag) < 4 && i < PATH_ITERATIONS) {
             //iterate through the fractal
             zImag = 2 * zReal * zImag + imag;
             zReal = realSqr - imagSqr + real;
-            realPoint.add(zReal);
-            imagPoint.add(zImag);
             i++;
             //only calc the squared real and imag for optimization
             realSqr = zReal*zReal;
             imagSqr = zImag*zImag;
-            //draw line
-            current = imagToPixel(zReal, zImag);
-            frame.drawLine(current, prev);
-            prev = current;
+            //add the point to the line
+            orbit.xPoints[points] = realToX(zReal);
+            orbit.yPoints[points] = imagToY(zImag);
+            points++;
+            realPoints += zReal;
+            imagPoints += zImag;
         }
-        double realPoints= 0;
-        double imagPoints = 0;
-        for(int j = 0;j<realPoint.size();j++){
-            realPoints += realPoint.get(j);
-            imagPoints += imagPoint.get(j);
-            frame.drawDot(imagToPixel(realPoint.get(j), imagPoint.get(j)),Color.ORANGE);
+        orbit.length = points;
+        orbit.dotCount = points;
+        orbit.dotColor = ORANGE;
+        if(points > 0){
+            orbit.centerX = realToX(realPoints/points);
+            orbit.centerY = imagToY(imagPoints/points);
         }
-        frame.drawDot(imagToPixel(realPoints/realPoint.size(), imagPoints/imagPoint.size()),Color.RED);
     }
 
      /**
-     * draws the path the fractal takes at that point and draws it on the canvas
+     * calculates the path the fractal takes at that point
      * @param cordinate on the canvas
+     * @param orbit where the pixels of the path get stored
      */
-    public void drawJuliaSetPath(int x, int y) {
-        ArrayList<Double> realPoint = new ArrayList<Double>();
-        ArrayList<Double> imagPoint = new ArrayList<Double>();
-        double zReal = minReal + x * (maxReal - minReal) / width;
-        double zImag = minImag + y * (maxImag - minImag) / height;
+    public void juliaSetPath(int x, int y, FractalOrbitOverlay orbit) {
+        orbit.ensureCapacity(maxIter + 1);
+        double zReal = xToReal(x);
+        double zImag = yToImag(y);
         int i = 1;
         double realSqr = zReal*zReal;
         double imagSqr = zImag*zImag;
+        double realPoints = 0;
+        double imagPoints = 0;
 
-        Point prev = imagToPixel(zReal, zImag);
-        Point current = null;
+        //the line starts where the mouse is
+        orbit.xPoints[0] = realToX(zReal);
+        orbit.yPoints[0] = imagToY(zImag);
+        int points = 1;
         //run as long as it does not escape the fractal or exeeds the iteration limit
         while ((zReal * zReal) + (zImag * zImag) < 4 && i < maxIter) {
-            realPoint.add(zReal);
-            imagPoint.add(zImag);
+            realPoints += zReal;
+            imagPoints += zImag;
             //iterate through the fractal
             zImag = 2 * zReal * zImag + seedImag;
             zReal = realSqr - imagSqr + seedReal;
@@ -353,30 +1519,76 @@ public class FractalMath {
             //only calc the squared real and imag for optimization
             realSqr = zReal*zReal;
             imagSqr = zImag*zImag;
-            //draw line
-            current = imagToPixel(zReal, zImag);
-            frame.drawLine(current, prev);
-            prev = current;
-            
+            //add the point to the line
+            orbit.xPoints[points] = realToX(zReal);
+            orbit.yPoints[points] = imagToY(zImag);
+            points++;
         }
-        double realPoints= 0;
-        double imagPoints = 0;
-        for(int j = 0;j<realPoint.size();j++){
-            realPoints += realPoint.get(j);
-            imagPoints += imagPoint.get(j);
-            frame.drawDot(imagToPixel(realPoint.get(j), imagPoint.get(j)),Color.BLUE);
+        orbit.length = points;
+        //every point but the last one gets a dot
+        orbit.dotCount = points - 1;
+        orbit.dotColor = BLUE;
+        if(points > 1){
+            orbit.centerX = realToX(realPoints/(points - 1));
+            orbit.centerY = imagToY(imagPoints/(points - 1));
         }
-        frame.drawDot(imagToPixel(realPoints/realPoint.size(), imagPoints/imagPoint.size()),Color.RED);
     }
 
     /**
-     * @param point on the fractal
-     * @return point on the canvas
+     * @param real part of a point on the fractal
+     * @return x of the point on the canvas
      */
-     public Point imagToPixel(double real, double imag) {
-        int x = (int) ((real - minReal) / (maxReal - minReal) * width);
-        int y = (int) ((imag - minImag) / (maxImag - minImag) * height);
-        return new Point(x, y);
+    public int realToX(double real) {
+        return (int) ((real - originReal) / realStep - panX);
+    }
+
+    /**
+     * @param imag part of a point on the fractal
+     * @return y of the point on the canvas
+     */
+    public int imagToY(double imag) {
+        return (int) ((imag - originImag) / imagStep - panY);
+    }
+
+    /**
+     * @return width of a pixel on the fractal, never 0 even when the zoom is too deep for xToReal to tell pixels apart
+     */
+    public double getRealStep() {
+        return realStep;
+    }
+
+    /**
+     * @return height of a pixel on the fractal
+     */
+    public double getImagStep() {
+        return imagStep;
+    }
+
+    /**
+     * xToReal(0) with as many digits as the precise center has, for the precisions past doubles
+     * so every precision puts pixel x at the same point, origin + (x + panX) * realStep,
+     * the origin is only rounded to a double when it isnt 0 and that happens as it gets dragged
+     * by whole pixels together with the precise center so its the center minus half the screen
+     * @return real part of the left edge of the screen
+     * @see this{@link #xToReal(int)}
+     */
+    public BigDecimal getPreciseMinReal() {
+        if(onTileGrid){
+            return new BigDecimal(panX).multiply(new BigDecimal(realStep));
+        }
+        return deepZoom.centerReal.subtract(new BigDecimal(width / 2.0 * realStep));
+    }
+
+    /**
+     * yToImag(0) with as many digits as the precise center has
+     * @return imaginary part of the top edge of the screen
+     * @see this{@link #getPreciseMinReal()}
+     */
+    public BigDecimal getPreciseMinImag() {
+        if(onTileGrid){
+            return new BigDecimal(panY).multiply(new BigDecimal(imagStep));
+        }
+        return deepZoom.centerImag.subtract(new BigDecimal(height / 2.0 * imagStep));
     }
 
     /**
@@ -384,7 +1596,7 @@ public class FractalMath {
      * @return point on the canvas
      */
      public double xToReal(int x) {
-        double real = minReal + x * (maxReal - minReal) / width;
+        double real = originReal + (x + panX) * realStep;
         return real;
     }
 
@@ -393,17 +1605,382 @@ public class FractalMath {
      * @return point on the canvas
      */
     public double yToImag(int y) {
-        double imag = minImag + y * (maxImag - minImag) / height;
+        double imag = originImag + (y + panY) * imagStep;
         return imag;
     }
     
     
 
     /**
-     * Calculates the fractal distributing the load between 16 threads
-     * @see FractalEdgeTrace#calculateEdgeFractal(int)
+     * Calculates the fractal distributing the load between all the cores
+     * @see FractalEdgeTrace#calculateEdgeFractal()
      */
     public void edgeDetectionFractal() {
-        tracer.calculateEdgeFractal(8);
+        startFrame();
+        tracer.calculateEdgeFractal();
+        finishFrame();
+        supersampleEdges();
+    }
+
+    /**
+     * gets everything ready for a new frame and forgets 
+     * all the pixels calculated in the last one,
+     * has to be called before the threads start drawing pixels
+     * @see FractalProgressiveRender
+     */
+    public void startFrame() {
+        prepareFrame();
+        frameMaxIter = maxIter;
+        Arrays.fill(pixelState, NOT_CALCULATED);
+        supersample.forget();
+    }
+
+    /**
+     * takes the anti aliasing samples of the pixels on edges once the frame is done
+     * if anti aliasing is on and the pixels changed since they were last taken
+     * @return false if the frame got cancelled before they were all taken
+     * @see FractalSupersample#sampleEdges()
+     */
+    public boolean supersampleEdges() {
+        return !antiAlias || supersample.sampleEdges();
+    }
+
+    /**
+     * @return true if the last frame finished and was of the same part of the
+     * same fractal, not counting the iteration limit or how far it got dragged
+     */
+    private boolean sameViewAsLastFrame() {
+        return frameComplete && zoom == lastZoom && originReal == lastOriginReal && originImag == lastOriginImag
+            && seedReal == lastSeedReal && seedImag == lastSeedImag
+            && precision == lastPrecision && useVector == lastUseVector && engine == lastEngine
+            && useDistanceEstimation == lastUseDistanceEstimation
+            //the continuous colors need the escape fractions a frame without them didnt keep
+            && (!smoothColors() || lastSmoothing);
+    }
+
+    /**
+     * @return true if the palette is going to need the escape fraction of every pixel
+     */
+    private boolean smoothColors() {
+        return palette.mode == FractalPalette.MODE_CONTINUOUS;
+    }
+
+    /**
+     * if the only thing that changed since the last frame is that it got dragged
+     * it shifts the last frame over instead of forgetting it so only
+     * the strips that got uncovered need to be calculated
+     * @return false if the frame cant be reused and has to be started from scratch
+     * @see FractalEdgeTrace#renderShifted(int, int)
+     */
+    public boolean startShiftedFrame() {
+        selectPrecision();
+        boolean sameView = sameViewAsLastFrame() && maxIter == lastMaxIter;
+        shiftX = (int) (panX - lastPanX);
+        shiftY = (int) (panY - lastPanY);
+        if(!sameView || Math.abs(panX - lastPanX) >= width || Math.abs(panY - lastPanY) >= height){
+            return false;
+        }
+        prepareFrame();
+        frameMaxIter = maxIter;
+        supersample.forget();
+        shiftBuffer(iterations, shiftX, shiftY);
+        shiftBuffer(pixelState, shiftX, shiftY);
+        shiftBuffer(orbitReal, shiftX, shiftY);
+        shiftBuffer(orbitImag, shiftX, shiftY);
+        shiftBuffer(escapeFractions, shiftX, shiftY);
+        //the uncovered strips
+        for(int y = 0; y < height; y++){
+            if(y + shiftY < 0 || y + shiftY >= height){
+                Arrays.fill(pixelState, y * width, (y + 1) * width, NOT_CALCULATED);
+            } else if(shiftX > 0){
+                Arrays.fill(pixelState, (y + 1) * width - shiftX, (y + 1) * width, NOT_CALCULATED);
+            } else if(shiftX < 0){
+                Arrays.fill(pixelState, y * width, y * width - shiftX, NOT_CALCULATED);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * if the only thing that changed since the last frame is the iteration limit
+     * the last frame gets reused, lowering the limit only changes the colors
+     * and raising it only carries on the pixels that hit the old limit
+     * (which only the float and double kernels can do)
+     * @return false if the frame cant be reused and has to be started from scratch
+     * @see FractalEdgeTrace#renderResumed()
+     */
+    public boolean startResumedFrame() {
+        selectPrecision();
+        if(!sameViewAsLastFrame() || panX != lastPanX || panY != lastPanY){
+            return false;
+        }
+        limitRaised = maxIter > lastMaxIter;
+        if(limitRaised && precision > PRECISION_DOUBLE){
+            return false;
+        }
+        prepareFrame();
+        frameMaxIter = Math.max(maxIter, lastMaxIter);
+        //lowering the limit only changes the colors so the samples are still good
+        if(limitRaised){
+            supersample.forget();
+        }
+        return true;
+    }
+
+    /**
+     * carries on calculating a pixel that hit the old iteration limit
+     * from where its orbit stopped, pixels the edge tracer filled in with
+     * the old limit have no orbit so they get forgotten for the tracer to redo
+     * @param cords on the canvas
+     * @see this{@link #startResumedFrame()}
+     */
+    public void resumePixel(int x, int y) {
+        int index = y * width + x;
+        if(iterations[index] != lastMaxIter){
+            return;
+        }
+        if(pixelState[index] == FILLED || pixelState[index] == DISC){
+            pixelState[index] = NOT_CALCULATED;
+            return;
+        }
+        if(pixelState[index] == CACHED){
+            //came out of the tile cache without its orbit
+            pixelState[index] = NOT_CALCULATED;
+            return;
+        }
+        if(pixelState[index] != CALCULATED){
+            return;
+        }
+        double real = xToReal(x);
+        double imag = yToImag(y);
+        boolean mandelbrot = seedImag == 0 && seedReal == 0;
+        if(mandelbrot && insideMainBulbs(real, imag)){
+            iterationsSaved.add(maxIter - lastMaxIter);
+            iterations[index] = maxIter;
+        } else if(precision == PRECISION_FLOAT && mandelbrot){
+            iterations[index] = mandelbrotOrbitFloat(index, (float) real, (float) imag,
+                (float) orbitReal[index], (float) orbitImag[index], lastMaxIter);
+        } else if(precision == PRECISION_FLOAT){
+            iterations[index] = juliaOrbitFloat(index, (float) orbitReal[index], (float) orbitImag[index], lastMaxIter);
+        } else if(mandelbrot){
+            iterations[index] = mandelbrotOrbit(index, real, imag, orbitReal[index], orbitImag[index], lastMaxIter);
+        } else {
+            iterations[index] = juliaOrbit(index, orbitReal[index], orbitImag[index], lastMaxIter);
+        }
+        pixelsIterated.increment();
+        totalIterations.add(iterations[index] - lastMaxIter);
+    }
+
+    /**
+     * @return true if the pixels of the current view can go in the tile cache,
+     * only the double kernels, the keys dont know the precision so float tiles
+     * would get loaded into double frames once float gets turned off again
+     */
+    private boolean usesTileCache() {
+        return onTileGrid && precision == PRECISION_DOUBLE;
+    }
+
+    /**
+     * @return the key of a tile of the current view
+     * @param tile cordinates on the tile grid
+     * @param limit iteration limit of the tile
+     */
+    private FractalTileCache.TileKey tileKey(long tileX, long tileY, int limit) {
+        return new FractalTileCache.TileKey(seedReal, seedImag, zoomLevel, tileX, tileY, limit);
+    }
+
+    /**
+     * copies every cached tile that covers part of the screen 
+     * into the pixels that arent known yet so they dont get calculated,
+     * has to be called after the frame gets started
+     * @return how many pixels came out of the cache
+     * @see FractalTileCache
+     */
+    public int loadCachedTiles() {
+        //the tiles only keep the iteration counts and not the escape fractions
+        if(!usesTileCache() || smoothing){
+            return 0;
+        }
+        int size = FractalTileCache.TILE_SIZE;
+        int loaded = 0;
+        for(long tileY = Math.floorDiv(panY, size); tileY <= Math.floorDiv(panY + height - 1, size); tileY++){
+            for(long tileX = Math.floorDiv(panX, size); tileX <= Math.floorDiv(panX + width - 1, size); tileX++){
+                FractalTileCache.Tile tile = tileCache.get(tileKey(tileX, tileY, maxIter));
+                if(tile == null){
+                    continue;
+                }
+                //part of the tile thats on the screen
+                int startX = (int) Math.max(tileX * size - panX, 0);
+                int endX = (int) Math.min(tileX * size + size - panX, width);
+                int startY = (int) Math.max(tileY * size - panY, 0);
+                int endY = (int) Math.min(tileY * size + size - panY, height);
+                for(int y = startY; y < endY; y++){
+                    int tileRow = (int) (y + panY - tileY * size) * size;
+                    for(int x = startX; x < endX; x++){
+                        int index = y * width + x;
+                        int tileIndex = tileRow + (int) (x + panX - tileX * size);
+                        if(pixelState[index] != NOT_CALCULATED){
+                            continue;
+                        }
+                        byte state = tile.stateAt(tileIndex);
+                        if(state == NOT_CALCULATED){
+                            continue;
+                        }
+                        iterations[index] = tile.iterationsAt(tileIndex);
+                        pixelState[index] = state == FILLED ? FILLED : CACHED;
+                        loaded++;
+                    }
+                }
+                tile.release();
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * puts every tile thats fully on the screen into the cache
+     * if it isnt in there already, called once a frame finishes
+     * @see FractalTileCache
+     */
+    public void storeCachedTiles() {
+        if(!frameComplete || !usesTileCache()){
+            return;
+        }
+        int size = FractalTileCache.TILE_SIZE;
+        for(long tileY = Math.floorDiv(panY + size - 1, size); (tileY + 1) * size <= panY + height; tileY++){
+            for(long tileX = Math.floorDiv(panX + size - 1, size); (tileX + 1) * size <= panX + width; tileX++){
+                FractalTileCache.TileKey key = tileKey(tileX, tileY, lastMaxIter);
+                if(tileCache.contains(key)){
+                    continue;
+                }
+                FractalTileCache.Tile tile = new FractalTileCache.Tile();
+                int startX = (int) (tileX * size - panX);
+                int startY = (int) (tileY * size - panY);
+                for(int row = 0; row < size; row++){
+                    System.arraycopy(iterations, (startY + row) * width + startX, tile.iterations, row * size, size);
+                    System.arraycopy(pixelState, (startY + row) * width + startX, tile.pixelState, row * size, size);
+                }
+                tileCache.put(key, tile);
+            }
+        }
+    }
+
+    /**
+     * moves every pixel of the buffer so the pixel that was at x+shiftX,y+shiftY
+     * ends up at x,y, copying whole rows at a time in place
+     * the rows are copied in an order that never overwrites a row that still has to be read
+     * @param buffer array with one element per pixel of the screen
+     * @param shiftX how far the view moved right
+     * @param shiftY how far the view moved down
+     */
+    private void shiftBuffer(Object buffer, int shiftX, int shiftY){
+        int rowLength = width - Math.abs(shiftX);
+        int fromX = Math.max(shiftX, 0);
+        int toX = Math.max(-shiftX, 0);
+        if(shiftY >= 0){
+            for(int y = 0; y + shiftY < height; y++){
+                System.arraycopy(buffer, (y + shiftY) * width + fromX, buffer, y * width + toX, rowLength);
+            }
+        } else {
+            for(int y = height - 1; y + shiftY >= 0; y--){
+                System.arraycopy(buffer, (y + shiftY) * width + fromX, buffer, y * width + toX, rowLength);
+            }
+        }
+    }
+
+    /**
+     * gets the precision and engines ready for the current view
+     */
+    private void prepareFrame() {
+        frameComplete = false;
+        selectPrecision();
+        smoothing = smoothColors();
+        iterationsSaved.reset();
+        pixelsIterated.reset();
+        totalIterations.reset();
+        deepZoom.prepare();
+        if(precision == PRECISION_DOUBLE_DOUBLE || (precision == PRECISION_ARBITRARY && !deepZoom.isActive())){
+            doubleDouble.prepare(getPreciseMinReal(), getPreciseMinImag());
+        }
+    }
+
+    /**
+     * stores the stats of the frame once every pixel is done
+     * and remembers the view so the next frame can reuse it
+     */
+    public void finishFrame() {
+        lastIterationsSaved = iterationsSaved.sum();
+        frameComplete = true;
+        lastZoom = zoom;
+        lastOriginReal = originReal;
+        lastOriginImag = originImag;
+        lastPanX = panX;
+        lastPanY = panY;
+        lastMaxIter = frameMaxIter;
+        lastSeedReal = seedReal;
+        lastSeedImag = seedImag;
+        lastPrecision = precision;
+        lastUseVector = useVector;
+        lastEngine = engine;
+        lastUseDistanceEstimation = useDistanceEstimation;
+        lastSmoothing = smoothing;
+    }
+
+    /**
+     * @return pixels that went through a kernel since the frame started
+     */
+    public long getPixelsIterated() {
+        return pixelsIterated.sum();
+    }
+
+    /**
+     * @return sum of the iteration counts of the pixels that went through a kernel since the frame started
+     */
+    public long getTotalIterations() {
+        return totalIterations.sum();
+    }
+
+    /**
+     * @return iterations skipped since the frame started
+     */
+    public long getIterationsSaved() {
+        return iterationsSaved.sum();
+    }
+
+    /**
+     * @return ARGB color of every pixel a row at a time as of the last colorData(),
+     * the array gets reused so it has to be copied if it needs to outlive the next frame
+     */
+    public int[] getPixels() {
+        return data;
+    }
+
+    /**
+     * @return iteration count of every pixel a row at a time, anything at or over
+     * maxIter is inside the fractal, same reuse rules as getPixels()
+     */
+    public int[] getIterationBuffer() {
+        return iterations;
+    }
+
+    /**
+     * @return the deep zoom engine so the frame can read its stats
+     */
+    public FractalDeepZoom getDeepZoom() {
+        return deepZoom;
+    }
+
+    /**
+     * @return the tile cache so the frame can read its stats
+     */
+    public FractalTileCache getTileCache() {
+        return tileCache;
+    }
+
+    /**
+     * @return the tracer so the frame can read the render stats
+     */
+    public FractalEdgeTrace getTracer() {
+        return tracer;
     }
 }
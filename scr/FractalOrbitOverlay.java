@@ -0,0 +1,44 @@
+/**
+ * Desc: the orbit of the point under the mouse, drawn on top of the fractal
+ * when the frame gets painted so the fractal itself never has to be redrawn for it,
+ * the points go into arrays that only ever grow so moving the mouse around
+ * doesnt create any new objects
+ */
+package FractalExplorer.scr;
+
+public class FractalOrbitOverlay {
+
+    //pixels on the canvas the orbit goes through in order
+    public int[] xPoints = new int[0];
+    public int[] yPoints = new int[0];
+    //how many of the points are part of the orbit
+    public int length;
+    //how many of the first points get a dot
+    public int dotCount;
+    //average of the dotted points
+    public int centerX;
+    public int centerY;
+    //ARGB color of the dots
+    public int dotColor = FractalMath.ORANGE;
+    //false untill an orbit gets calculated and again once the view changes
+    public boolean visible;
+
+    /**
+     * makes sure the arrays can fit that many points,
+     * only allocates when the orbit is longer than any before it
+     * @param points how many points the orbit can have
+     */
+    public void ensureCapacity(int points) {
+        if (xPoints.length < points) {
+            xPoints = new int[points];
+            yPoints = new int[points];
+        }
+    }
+
+    /**
+     * stops drawing the orbit untill a new one gets calculated
+     */
+    public void hide() {
+        visible = false;
+    }
+}
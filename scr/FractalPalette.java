@@ -0,0 +1,273 @@
+/**
+ * Desc: turns iteration counts into colors with a lookup table that has one color for every
+ * iteration count up to the limit, the table only gets rebuilt when the palette, the way
+ * of coloring or the limit changes (or every frame for the histogram) so coloring a pixel
+ * is a single array read and changing the colors never has to calculate anything again,
+ * apart from switching to the continuous colors which need how big z got for every pixel
+ */
+package FractalExplorer.scr;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class FractalPalette {
+
+    /*
+     * Mode 0: Bands, the palette repeats every BAND_LENGTH iterations
+     * Mode 1: Continuous, goes around the palette once from the first iteration to the limit
+     *         spaced out logarithmically, every pixel lands in between the colors of two counts
+     *         by how big z got when it escaped so there are no bands at all
+     * Mode 2: Histogram, spaces the colors out so every color covers about the same number of pixels
+     */
+    public static final int MODE_BANDS = 0;
+    public static final int MODE_CONTINUOUS = 1;
+    public static final int MODE_HISTOGRAM = 2;
+    public static final int MODE_COUNT = 3;
+
+    /*
+     * Palette 0: Rainbow, the hsb color wheel the program always used
+     * Palette 1: Fire
+     * Palette 2: Ocean
+     * Palette 3: Random, gets new colors every time it gets picked
+     */
+    public static final int PALETTE_RAINBOW = 0;
+    public static final int PALETTE_FIRE = 1;
+    public static final int PALETTE_OCEAN = 2;
+    public static final int PALETTE_RANDOM = 3;
+    public static final int PALETTE_COUNT = 4;
+
+    //how many iterations it takes the bands to go around the palette once
+    private static final int BAND_LENGTH = 100;
+    private static final int RANDOM_STOPS = 6;
+
+    //colors the palettes go through, the last one blends back into the first
+    private static final int[] RAINBOW = {0xffff0000, 0xffffff00, 0xff00ff00, 0xff00ffff, 0xff0000ff, 0xffff00ff};
+    private static final int[] FIRE = {0xff000000, 0xff800000, 0xffff4000, 0xffffc000, 0xffffffe0, 0xffffa000, 0xff600000};
+    private static final int[] OCEAN = {0xff000764, 0xff206bcb, 0xffedffff, 0xffffaa00, 0xff000200};
+
+    public int mode = MODE_BANDS;
+    public int palette = PALETTE_RAINBOW;
+
+    private FractalEdgeTrace tracer;
+    private Random random = new Random();
+    private int[] stops = RAINBOW;
+
+    //color of every iteration count from 0 to the limit
+    private int[] lut = new int[0];
+    //what the table was built for so it only gets built again when one of them changes
+    private int lutMaxIter = -1;
+    private int lutMode = -1;
+    private int lutPalette = -1;
+
+    //one histogram per stripe of rows so the threads never add to the same bins
+    private int[][] bins = new int[0][0];
+
+    public FractalPalette(FractalEdgeTrace tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * switches to another palette, picking the random palette
+     * always gives it new colors even if it was already picked
+     * @param palette one of the PALETTE constants
+     */
+    public void setPalette(int palette) {
+        this.palette = palette;
+        switch(palette){
+            case PALETTE_FIRE: stops = FIRE; break;
+            case PALETTE_OCEAN: stops = OCEAN; break;
+            case PALETTE_RANDOM: stops = randomStops(); break;
+            default: stops = RAINBOW; break;
+        }
+        //the random palette has the same number every time so the table wouldnt know its different
+        lutPalette = -1;
+    }
+
+    /**
+     * @return name of the palette for the stats
+     */
+    public String getPaletteName() {
+        switch(palette){
+            case PALETTE_FIRE: return "fire";
+            case PALETTE_OCEAN: return "ocean";
+            case PALETTE_RANDOM: return "random";
+            default: return "rainbow";
+        }
+    }
+
+    /**
+     * @return name of the way the iteration counts get turned into colors
+     */
+    public String getModeName() {
+        switch(mode){
+            case MODE_CONTINUOUS: return "continuous";
+            case MODE_HISTOGRAM: return "histogram";
+            default: return "bands";
+        }
+    }
+
+    /**
+     * gets the lookup table ready for coloring a frame, the histogram gets
+     * counted again every time since the iteration counts change every frame
+     * @param iterations iteration count of every pixel a row at a time
+     * @param width of the canvas
+     * @param maxIter anything at or over it is inside the set
+     * @see FractalMath#colorData()
+     */
+    public void prepare(int[] iterations, int width, int maxIter) {
+        if(mode == MODE_HISTOGRAM){
+            buildHistogramTable(iterations, width, maxIter);
+        } else if(maxIter != lutMaxIter || mode != lutMode || palette != lutPalette){
+            buildTable(maxIter);
+        }
+    }
+
+    /**
+     * @param iterations number of iteration it took to solve the pixel
+     * @return the color for that many iterations as of the last prepare()
+     */
+    public int colorOf(int iterations) {
+        //can be over the limit if it got lowered after the pixel was calculated
+        return lut[Math.min(iterations, lutMaxIter)];
+    }
+
+    /**
+     * blends the two colors of the table the count a pixel would have escaped at
+     * if it could escape part way through an iteration is between
+     * @param iterations number of iteration it took to escape
+     * @param fraction how far past the count it got from how big z was when it escaped
+     * @return the color in between the colors of the counts as of the last prepare()
+     * @see FractalMath#saveEscape(int, double, double, double, double, int)
+     */
+    public int smoothColorOf(int iterations, float fraction) {
+        if(iterations <= 0 || iterations >= lutMaxIter){
+            return colorOf(iterations);
+        }
+        double smooth = iterations + fraction;
+        //the first count has white below it and the last one black above it so it stops at them
+        smooth = Math.max(1, Math.min(smooth, lutMaxIter - 1));
+        int count = (int) smooth;
+        if(count == lutMaxIter - 1){
+            return lut[count];
+        }
+        double blend = smooth - count;
+        int from = lut[count];
+        int to = lut[count + 1];
+        return 0xff000000 | (blendChannel(from, to, 16, blend) << 16)
+            | (blendChannel(from, to, 8, blend) << 8) | blendChannel(from, to, 0, blend);
+    }
+
+    /**
+     * makes a table the right size for the limit with
+     * white for pixels that escaped straight away and black for the inside
+     */
+    private void startTable(int maxIter) {
+        if(lut.length != maxIter + 1){
+            lut = new int[maxIter + 1];
+        }
+        lut[0] = FractalMath.WHITE;
+        lut[maxIter] = FractalMath.BLACK;
+        lutMaxIter = maxIter;
+        lutMode = mode;
+        lutPalette = palette;
+    }
+
+    /**
+     * fills the table for the bands and the continuous colors, neither of them
+     * depends on the pixels so its only done when something about them changes
+     */
+    private void buildTable(int maxIter) {
+        startTable(maxIter);
+        double logLimit = Math.log(maxIter);
+        for(int i = 1; i < maxIter; i++){
+            double position = mode == MODE_CONTINUOUS
+                ? Math.log(i) / logLimit
+                : (double) (i % BAND_LENGTH) / BAND_LENGTH;
+            lut[i] = colorAt(position);
+        }
+    }
+
+    /**
+     * counts how many pixels took each number of iterations, every thread counting
+     * its own stripe of rows into its own bins, then adds the stripes up and gives
+     * every iteration count the color at how far through the escaped pixels it is
+     */
+    private void buildHistogramTable(int[] iterations, int width, int maxIter) {
+        int stripes = tracer.getThreadCount();
+        if(bins.length != stripes || bins[0].length != maxIter + 1){
+            bins = new int[stripes][maxIter + 1];
+        } else {
+            for(int[] stripe : bins){
+                Arrays.fill(stripe, 0);
+            }
+        }
+        tracer.forEachStripe(stripes, (stripe, y) -> {
+            int[] counts = bins[stripe];
+            //neighbouring pixels mostly took the same number of iterations so a whole run of them
+            //gets added at once instead of adding one to the same bin over and over
+            int start = y * width;
+            int end = start + width;
+            int run = iterations[start];
+            int runStart = start;
+            for(int index = start + 1; index < end; index++){
+                if(iterations[index] != run){
+                    counts[Math.min(run, maxIter)] += index - runStart;
+                    run = iterations[index];
+                    runStart = index;
+                }
+            }
+            counts[Math.min(run, maxIter)] += end - runStart;
+        });
+        //the first stripe ends up with the totals
+        int[] total = bins[0];
+        for(int s = 1; s < stripes; s++){
+            int[] counts = bins[s];
+            for(int i = 0; i < maxIter; i++){
+                total[i] += counts[i];
+            }
+        }
+        long escaped = 0;
+        for(int i = 1; i < maxIter; i++){
+            escaped += total[i];
+        }
+        startTable(maxIter);
+        //the middle of the pixels with that count so a count with lots of pixels doesnt all end up one end
+        double below = 0;
+        for(int i = 1; i < maxIter; i++){
+            lut[i] = colorAt(escaped == 0 ? 0 : (below + total[i] / 2.0) / escaped);
+            below += total[i];
+        }
+    }
+
+    /**
+     * @param position how far around the palette from 0 to 1, it wraps around past 1
+     * @return the color blended between the two stops its between
+     */
+    private int colorAt(double position) {
+        double place = (position - Math.floor(position)) * stops.length;
+        int stop = (int) place;
+        double blend = place - stop;
+        int from = stops[stop % stops.length];
+        int to = stops[(stop + 1) % stops.length];
+        return 0xff000000 | (blendChannel(from, to, 16, blend) << 16)
+            | (blendChannel(from, to, 8, blend) << 8) | blendChannel(from, to, 0, blend);
+    }
+
+    private static int blendChannel(int from, int to, int shift, double blend) {
+        int a = (from >> shift) & 0xff;
+        int b = (to >> shift) & 0xff;
+        return (int) (a + (b - a) * blend + 0.5);
+    }
+
+    /**
+     * @return stops of random colors that alternate between dark and bright so the bands can be told apart
+     */
+    private int[] randomStops() {
+        int[] random = new int[RANDOM_STOPS];
+        for(int i = 0; i < RANDOM_STOPS; i++){
+            float brightness = i % 2 == 0 ? 0.3f + 0.2f * this.random.nextFloat() : 0.85f + 0.15f * this.random.nextFloat();
+            random[i] = FractalMath.hsbToRgb(this.random.nextFloat(), 0.5f + 0.5f * this.random.nextFloat(), brightness);
+        }
+        return random;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Desc: renders the fractal in passes, starting with big blocks 
+ * that show up right away and getting finer every pass
+ * untill the edge tracer finishes the full resolution image
+ */
+package FractalExplorer.scr;
+
+public class FractalProgressiveRender {
+
+    //width and height of the blocks in the first pass
+    private static final int COARSEST_BLOCK = 8;
+
+    private FractalDisplay display;
+    private FractalMath math;
+
+    /**
+     * @param display what shows the passes
+     * @param math math of the fractal being rendered
+     */
+    public FractalProgressiveRender(FractalDisplay display, FractalMath math) {
+        this.display = display;
+        this.math = math;
+    }
+
+    /**
+     * draws every pass and shows it as soon as its done
+     * each pass reuses the pixels calculated by the ones before it
+     * @return false if the render got cancelled before it finished
+     * @see FractalEdgeTrace#cancelled
+     */
+    public boolean render() {
+        FractalEdgeTrace tracer = math.getTracer();
+        //only dragged so the old frame is still good apart from the edges
+        if (math.startShiftedFrame()) {
+            //the uncovered strips might have been seen before
+            math.loadCachedTiles();
+            tracer.renderShifted(math.shiftX, math.shiftY);
+            if (tracer.cancelled) {
+                return false;
+            }
+            math.finishFrame();
+            math.storeCachedTiles();
+            if (!math.supersampleEdges()) {
+                return false;
+            }
+            math.colorData();
+            display.repaint();
+            return true;
+        }
+        //only the iteration limit changed so only the pixels that hit the old one get worked on
+        if (math.startResumedFrame()) {
+            if (math.limitRaised) {
+                tracer.renderResumed();
+                tracer.calculateEdgeFractal();
+            }
+            if (tracer.cancelled) {
+                return false;
+            }
+            math.finishFrame();
+            math.storeCachedTiles();
+            if (!math.supersampleEdges()) {
+                return false;
+            }
+            math.colorData();
+            display.repaint();
+            return true;
+        }
+        math.startFrame();
+        //no need for the coarse passes if the whole screen was already in the cache
+        boolean allCached = math.loadCachedTiles() == math.width * math.height;
+        for (int blockSize = COARSEST_BLOCK; blockSize > 1 && !allCached; blockSize /= 2) {
+            tracer.renderBlocks(blockSize);
+            if (tracer.cancelled) {
+                return false;
+            }
+            math.colorData();
+            display.repaint();
+        }
+        //full resolution
+        tracer.calculateEdgeFractal();
+        if (tracer.cancelled) {
+            return false;
+        }
+        math.finishFrame();
+        math.storeCachedTiles();
+        //the frame shows up without anti aliasing first since the samples can take a while
+        math.colorData();
+        display.repaint();
+        if (math.antiAlias && !math.getSupersample().isSampled()) {
+            if (!math.supersampleEdges()) {
+                return false;
+            }
+            math.colorData();
+            display.repaint();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Desc: custom flight recorder events for the render path so a recording
+ * shows where the time of a slow frame went, the frame and coloring events are
+ * on by default and the per rectangle ones are off since there are thousands a frame,
+ * turn them on in a .jfc file or with jdk.jfr settings when the tracer needs looking at
+ */
+package FractalExplorer.scr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+public class FractalRenderEvents {
+
+    /**
+     * one full resolution pass of the edge tracer
+     * @see FractalEdgeTrace#calculateEdgeFractal()
+     */
+    @Name("FractalExplorer.Frame")
+    @Label("Fractal Frame")
+    @Category("Fractal Explorer")
+    @Description("Full resolution pass of the edge tracer")
+    public static class FrameEvent extends Event {
+        @Label("Width")
+        public int width;
+        @Label("Height")
+        public int height;
+        @Label("Max Iterations")
+        public int maxIter;
+        @Label("Precision")
+        public String precision;
+        @Label("Vector Kernel")
+        public boolean vector;
+        @Label("Engine")
+        @Description("How the tracer skipped pixels, rectangles or boundary")
+        public String engine;
+        @Label("Discs")
+        @Description("Discs the distance estimate filled in before the engine started")
+        public long discs;
+        @Label("Pixels Iterated")
+        @Description("Pixels that went through a kernel this frame, coarse passes included")
+        public long pixelsIterated;
+        @Label("Pixels Filled")
+        @Description("Pixels the edge tracer filled in without calculating them")
+        public long pixelsFilled;
+        @Label("Total Iterations")
+        @Description("Sum of the iteration counts of the pixels that got iterated")
+        public long totalIterations;
+        @Label("Iterations Saved")
+        public long iterationsSaved;
+        @Label("Deepest Split")
+        public int maxDepth;
+        @Label("Rectangles")
+        public long rectangles;
+        @Label("Sectors")
+        @Description("Rectangles the screen got split into before the tracer started, planned from the last frame's cost")
+        public int sectors;
+        @Label("Pixels Per Second")
+        public double pixelsPerSecond;
+        @Label("Idle Percent")
+        public double idlePercent;
+        @Label("Steals")
+        public long steals;
+        @Label("Cancelled")
+        public boolean cancelled;
+    }
+
+    /**
+     * one rectangle the edge tracer checked the border of
+     * @see FractalEdgeTrace#renderRectangle(int, int, int, int)
+     */
+    @Name("FractalExplorer.Rectangle")
+    @Label("Fractal Rectangle")
+    @Category("Fractal Explorer")
+    @Description("Border check of one rectangle of the edge tracer, not counting its children")
+    @Enabled(false)
+    public static class RectangleEvent extends Event {
+        @Label("X")
+        public int x;
+        @Label("Y")
+        public int y;
+        @Label("Width")
+        public int width;
+        @Label("Height")
+        public int height;
+        @Label("Depth")
+        public int depth;
+        @Label("Edge Found")
+        public boolean edgeFound;
+    }
+
+    /**
+     * the inside of a rectangle getting calculated or filled in
+     * @see FractalEdgeTrace#fullRenderRectangle(int, int, int, int)
+     * @see FractalEdgeTrace#fullRenderRectangle(int, int, int, int, int)
+     * @see FractalBoundaryTrace#renderTile(int, int, int, int)
+     *    a whole tile of the boundary engine, edges followed and the rest filled in
+     */
+    @Name("FractalExplorer.Fill")
+    @Label("Fractal Fill")
+    @Category("Fractal Explorer")
+    @Description("Inside of a rectangle getting calculated pixel by pixel or filled with one iteration count")
+    @Enabled(false)
+    public static class FillEvent extends Event {
+        @Label("X")
+        public int x;
+        @Label("Y")
+        public int y;
+        @Label("Width")
+        public int width;
+        @Label("Height")
+        public int height;
+        @Label("Calculated")
+        @Description("True if every pixel went through the kernel, false if they all got the same count")
+        public boolean calculated;
+    }
+
+    /**
+     * the iteration counts getting turned into colors
+     * @see FractalMath#colorData()
+     */
+    @Name("FractalExplorer.Color")
+    @Label("Fractal Color")
+    @Category("Fractal Explorer")
+    @Description("Coloring of the iteration buffer and handing it to the display")
+    public static class ColorEvent extends Event {
+        @Label("Filter")
+        public int filter;
+        @Label("Mode")
+        @Description("Bands, continuous or histogram")
+        public String mode;
+        @Label("Pixels")
+        public int pixels;
+        @Label("Display Time")
+        @Description("Part of the time spent handing the pixels to the display")
+        @Timespan(Timespan.NANOSECONDS)
+        public long displayTime;
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * Desc: renders the fractal on its own thread so the input never waits for it,
+ * the input only posts changes to the view and the scheduler applies
+ * everything that piled up at once before rendering just the newest view,
+ * a render that goes out of date halfway through gets cancelled
+ */
+package FractalExplorer.scr;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class FractalRenderScheduler implements Runnable {
+
+    private FractalMath math;
+    private FractalProgressiveRender progressiveRender;
+    private Thread thread;
+
+    //changes to the view posted since the last render started
+    private List<Consumer<FractalMath>> pending = new ArrayList<>();
+    //when the oldest pending change was posted
+    private long pendingSince;
+    //true while a render is running
+    private boolean rendering;
+
+    //metrics
+    private long requestCount;
+    private long coalescedCount;
+    private long cancelledCount;
+    private long completedCount;
+    private long lastLatency;
+    private long totalLatency;
+
+    /**
+     * @param display what shows the renders
+     * @param math math of the fractal being rendered
+     */
+    public FractalRenderScheduler(FractalDisplay display, FractalMath math) {
+        this.math = math;
+        this.progressiveRender = new FractalProgressiveRender(display, math);
+        thread = new Thread(this, "Fractal Render Scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * queues a change to the view and cancels the render that is running
+     * since it is out of date now, the change runs on the render thread
+     * @param change what to do to the fractal before the next render
+     * @see FractalFrame#updateOffset(int, int)
+     */
+    public synchronized void post(Consumer<FractalMath> change) {
+        if (pending.isEmpty()) {
+            pendingSince = System.nanoTime();
+        }
+        pending.add(change);
+        requestCount++;
+        math.getTracer().cancelled = true;
+        notifyAll();
+    }
+
+    /**
+     * throws away everything that hasnt been rendered yet
+     * and waits for the current render to stop, the tracer is
+     * left uncancelled so the caller can render frames itself
+     * @see FractalFrame#calculateAverageTime(int)
+     */
+    public synchronized void cancel() {
+        pending.clear();
+        math.getTracer().cancelled = true;
+        while (rendering) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        //only the run loop clears it otherwise so every frame after this would stop straight away
+        math.getTracer().cancelled = false;
+    }
+
+    /**
+     * lets another thread read the view without it changing halfway through,
+     * the changes only ever get applied while holding the same lock
+     * and the view stays the same for the whole render after that
+     * @param reader what reads the view, runs on the calling thread
+     * @see FractalFrame#calculateFractalPath(int, int)
+     */
+    public synchronized void readView(Consumer<FractalMath> reader) {
+        reader.accept(math);
+    }
+
+    /**
+     * @return true if nothing is being rendered or waiting to be
+     */
+    public synchronized boolean isIdle() {
+        return !rendering && pending.isEmpty();
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            List<Consumer<FractalMath>> changes;
+            long postedAt;
+            synchronized (this) {
+                while (pending.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                changes = pending;
+                postedAt = pendingSince;
+                pending = new ArrayList<>();
+                coalescedCount += changes.size() - 1;
+                rendering = true;
+                //anything posted after this point cancels the render again
+                math.getTracer().cancelled = false;
+            }
+            try {
+                //the render thread is the only one that changes the view
+                //and does it while holding the lock so readView never sees half a change
+                synchronized (this) {
+                    for (Consumer<FractalMath> change : changes) {
+                        change.accept(math);
+                    }
+                }
+                boolean finished = progressiveRender.render();
+                synchronized (this) {
+                    if (finished) {
+                        completedCount++;
+                        lastLatency = System.nanoTime() - postedAt;
+                        totalLatency += lastLatency;
+                    } else {
+                        cancelledCount++;
+                    }
+                }
+            } finally {
+                synchronized (this) {
+                    rendering = false;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return how many changes were posted
+     */
+    public synchronized long getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * @return how many changes got rendered together with a newer one instead of on their own
+     */
+    public synchronized long getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * @return how many renders were stopped because the view changed
+     */
+    public synchronized long getCancelledCount() {
+        return cancelledCount;
+    }
+
+    /**
+     * @return how many renders made it to full resolution
+     */
+    public synchronized long getCompletedCount() {
+        return completedCount;
+    }
+
+    /**
+     * @return milliseconds from the input to the full resolution frame for the last render
+     */
+    public synchronized double getLastLatency() {
+        return lastLatency / 1e6;
+    }
+
+    /**
+     * @return average milliseconds from the input to the full resolution frame
+     */
+    public synchronized double getAverageLatency() {
+        return completedCount == 0 ? 0 : totalLatency / 1e6 / completedCount;
+    }
+
+    /**
+     * @return all the metrics in one line
+     */
+    public synchronized String getMetrics() {
+        return "Requests: " + requestCount + " Coalesced: " + coalescedCount 
+            + " Cancelled: " + cancelledCount + " Completed: " + completedCount
+            + " Last latency: " + getLastLatency() + "ms Average latency: " + getAverageLatency() + "ms";
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Desc: keeps the numbers of the last full resolution frame and the last coloring
+ * so they can be read over JMX while the program runs, the tracer and the coloring
+ * hand over everything at the end of their pass so reading them never slows a frame down
+ */
+package FractalExplorer.scr;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+public class FractalRenderStats implements FractalRenderStatsMBean {
+
+    //name the stats show up under in jconsole
+    public static final String OBJECT_NAME = "FractalExplorer:type=RenderStats";
+
+    private long frameCount;
+    private long totalFrameTime;
+    private long lastFrameTime;
+    private long lastPixelsIterated;
+    private long lastPixelsFilled;
+    private long lastTotalIterations;
+    private double lastPixelsPerSecond;
+    private long[] lastDepthHistogram = new long[0];
+    private long[] lastThreadBusyTime = new long[0];
+    private double lastIdlePercent;
+    private long lastStealCount;
+    private long lastColorTime;
+    private long lastDisplayTime;
+
+    /**
+     * makes the stats readable over JMX, only one set of stats can be
+     * registered at a time so a newer one replaces the older one
+     */
+    public void register() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.out.println("Render stats could not be registered: " + e.getMessage());
+        }
+    }
+
+    /**
+     * stores the numbers of a full resolution frame that just finished
+     * @param frameTime nanoseconds the pass took
+     * @param pixels width times height of the canvas
+     * @param depthHistogram how many rectangles the tracer checked at every depth of splitting
+     * @param threadBusyTime nanoseconds every thread of the pool spent calculating
+     * @see FractalEdgeTrace#calculateEdgeFractal()
+     */
+    public synchronized void recordFrame(long frameTime, long pixels, long pixelsIterated, long pixelsFilled,
+            long totalIterations, long[] depthHistogram, long[] threadBusyTime, double idlePercent, long stealCount) {
+        frameCount++;
+        totalFrameTime += frameTime;
+        lastFrameTime = frameTime;
+        lastPixelsIterated = pixelsIterated;
+        lastPixelsFilled = pixelsFilled;
+        lastTotalIterations = totalIterations;
+        lastPixelsPerSecond = frameTime > 0 ? pixels / (frameTime / 1e9) : 0;
+        lastDepthHistogram = depthHistogram;
+        lastThreadBusyTime = threadBusyTime;
+        lastIdlePercent = idlePercent;
+        lastStealCount = stealCount;
+    }
+
+    /**
+     * stores how long turning the iterations into colors took
+     * @param colorTime nanoseconds for the whole pass
+     * @param displayTime nanoseconds of it spent handing the pixels to the display
+     * @see FractalMath#colorData()
+     */
+    public synchronized void recordColor(long colorTime, long displayTime) {
+        lastColorTime = colorTime;
+        lastDisplayTime = displayTime;
+    }
+
+    @Override
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public synchronized double getLastFrameTimeMillis() {
+        return lastFrameTime / 1e6;
+    }
+
+    @Override
+    public synchronized double getAverageFrameTimeMillis() {
+        return frameCount == 0 ? 0 : totalFrameTime / 1e6 / frameCount;
+    }
+
+    @Override
+    public synchronized long getLastPixelsIterated() {
+        return lastPixelsIterated;
+    }
+
+    @Override
+    public synchronized long getLastPixelsFilled() {
+        return lastPixelsFilled;
+    }
+
+    @Override
+    public synchronized long getLastTotalIterations() {
+        return lastTotalIterations;
+    }
+
+    @Override
+    public synchronized double getLastPixelsPerSecond() {
+        return lastPixelsPerSecond;
+    }
+
+    @Override
+    public synchronized long[] getLastDepthHistogram() {
+        return lastDepthHistogram.clone();
+    }
+
+    @Override
+    public synchronized double[] getLastThreadBusyMillis() {
+        return Arrays.stream(lastThreadBusyTime).mapToDouble(time -> time / 1e6).toArray();
+    }
+
+    @Override
+    public synchronized double getLastIdlePercent() {
+        return lastIdlePercent;
+    }
+
+    @Override
+    public synchronized long getLastStealCount() {
+        return lastStealCount;
+    }
+
+    @Override
+    public synchronized double getLastColorTimeMillis() {
+        return lastColorTime / 1e6;
+    }
+
+    @Override
+    public synchronized double getLastDisplayTimeMillis() {
+        return lastDisplayTime / 1e6;
+    }
+
+    @Override
+    public synchronized void reset() {
+        frameCount = 0;
+        totalFrameTime = 0;
+    }
+
+    /**
+     * @return the last frame in one line for printing
+     */
+    public synchronized String getSummary() {
+        return String.format("Pixels iterated: %d filled: %d Total iterations: %d %.0f pixels/s Color: %.2fms (display %.2fms)"
+            + " Depths: %s Thread busy ms: %s",
+            lastPixelsIterated, lastPixelsFilled, lastTotalIterations, lastPixelsPerSecond,
+            lastColorTime / 1e6, lastDisplayTime / 1e6,
+            Arrays.toString(lastDepthHistogram), Arrays.toString(getLastThreadBusyMillis()));
+    }
+}
@@ -0,0 +1,36 @@
+/**
+ * Desc: what the render stats look like over JMX (jconsole, VisualVM, ...)
+ * @see FractalRenderStats
+ */
+package FractalExplorer.scr;
+
+public interface FractalRenderStatsMBean {
+
+    long getFrameCount();
+
+    double getLastFrameTimeMillis();
+
+    double getAverageFrameTimeMillis();
+
+    long getLastPixelsIterated();
+
+    long getLastPixelsFilled();
+
+    long getLastTotalIterations();
+
+    double getLastPixelsPerSecond();
+
+    long[] getLastDepthHistogram();
+
+    double[] getLastThreadBusyMillis();
+
+    double getLastIdlePercent();
+
+    long getLastStealCount();
+
+    double getLastColorTimeMillis();
+
+    double getLastDisplayTimeMillis();
+
+    void reset();
+}
@@ -0,0 +1,156 @@
+/**
+ * Desc: anti aliasing that only looks closer at the pixels that need it, a pixel where the
+ * iteration count changes to one of the pixels around it is on an edge of the colors so it gets
+ * calculated again at a grid of jittered points inside it and colored with the average of them,
+ * everywhere else the one sample the tracer already took is all there is, so it costs a lot less
+ * than calculating every pixel many times over and only the edges look any different
+ */
+package FractalExplorer.scr;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+public class FractalSupersample {
+
+    //samples per pixel along each side so every edge pixel gets GRID * GRID of them
+    private static final int GRID = 4;
+    private static final int SAMPLES = GRID * GRID;
+    //how many pixels of a row get looked at between checks for a cancelled frame
+    private static final int CANCEL_CHECK = 64;
+
+    //where in the pixel every sample is, one random spot in each cell of the grid
+    //the same for every pixel so the edges dont flicker when the frame gets drawn again
+    private static final double[] OFFSET_X = new double[SAMPLES];
+    private static final double[] OFFSET_Y = new double[SAMPLES];
+    static {
+        Random random = new Random(1);
+        for (int i = 0; i < SAMPLES; i++) {
+            OFFSET_X[i] = (i % GRID + random.nextDouble()) / GRID - 0.5;
+            OFFSET_Y[i] = (i / GRID + random.nextDouble()) / GRID - 0.5;
+        }
+    }
+
+    private FractalMath math;
+    private FractalEdgeTrace tracer;
+
+    //x of every pixel of a row that got sampled and the iteration count of each of their samples
+    //kept so changing the colors only has to average them again instead of calculating them,
+    //and the escape fraction of every sample while the frame keeps them for the continuous colors
+    private int[][] rowPixels = new int[0][];
+    private int[][] rowSamples = new int[0][];
+    private float[][] rowFractions = new float[0][];
+    private int[] rowCounts = new int[0];
+    //true once every row got sampled for the pixels in the buffers
+    private boolean sampled;
+    //how many pixels got sampled in the last frame that was sampled
+    public long lastPixelCount;
+    private LongAdder pixelCount = new LongAdder();
+
+    public FractalSupersample(FractalMath math, FractalEdgeTrace tracer) {
+        this.math = math;
+        this.tracer = tracer;
+    }
+
+    /**
+     * throws away the samples because the pixels they belong to changed
+     * @see FractalMath#startFrame()
+     */
+    public void forget() {
+        sampled = false;
+    }
+
+    /**
+     * @return true if every pixel on an edge of the current frame has its samples
+     */
+    public boolean isSampled() {
+        return sampled;
+    }
+
+    /**
+     * finds every pixel whose iteration count is different to one of the 8 pixels around it
+     * and calculates the samples inside it, does nothing if the frame was already sampled
+     * @return false if the frame got cancelled before every row got sampled
+     * @see FractalMath#supersampleEdges()
+     */
+    public boolean sampleEdges() {
+        if (sampled) {
+            return true;
+        }
+        int height = math.height;
+        if (rowCounts.length != height) {
+            rowPixels = new int[height][0];
+            rowSamples = new int[height][0];
+            rowFractions = new float[height][0];
+            rowCounts = new int[height];
+        }
+        pixelCount.reset();
+        tracer.forEachRow(this::sampleRow);
+        if (tracer.cancelled) {
+            return false;
+        }
+        lastPixelCount = pixelCount.sum();
+        sampled = true;
+        return true;
+    }
+
+    /**
+     * samples the edge pixels of one row
+     * @param y row of the canvas
+     */
+    private void sampleRow(int y) {
+        int width = math.width;
+        math.findCountEdges(y);
+        int count = 0;
+        for (int x = 0; x < width; x++) {
+            if (x % CANCEL_CHECK == 0 && tracer.cancelled) {
+                return;
+            }
+            if (!math.isCountEdge(x, y)) {
+                continue;
+            }
+            if (count == rowPixels[y].length) {
+                rowPixels[y] = Arrays.copyOf(rowPixels[y], Math.max(16, count * 2));
+                rowSamples[y] = Arrays.copyOf(rowSamples[y], Math.max(16, count * 2) * SAMPLES);
+                rowFractions[y] = Arrays.copyOf(rowFractions[y], Math.max(16, count * 2) * SAMPLES);
+            }
+            int[] samples = rowSamples[y];
+            float[] fractions = rowFractions[y];
+            for (int i = 0; i < SAMPLES; i++) {
+                int slot = count * SAMPLES + i;
+                samples[slot] = math.calculateSample(x + OFFSET_X[i], y + OFFSET_Y[i], fractions, slot);
+            }
+            rowPixels[y][count++] = x;
+        }
+        rowCounts[y] = count;
+        pixelCount.add(count);
+    }
+
+    /**
+     * colors the sampled pixels of a row with the average color of their samples
+     * @param y row of the canvas
+     * @param argb colors of the canvas a row at a time, the row already colored the normal way
+     * @param palette colors of the iteration counts
+     * @param smooth true to color every sample in between the colors of two counts
+     * by its escape fraction like the pixels around it
+     * @see FractalMath#colorData()
+     * @see FractalPalette#smoothColorOf(int, float)
+     */
+    public void blendRow(int y, int[] argb, FractalPalette palette, boolean smooth) {
+        int[] pixels = rowPixels[y];
+        int[] samples = rowSamples[y];
+        float[] fractions = rowFractions[y];
+        for (int p = 0; p < rowCounts[y]; p++) {
+            int red = 0;
+            int green = 0;
+            int blue = 0;
+            for (int i = p * SAMPLES; i < (p + 1) * SAMPLES; i++) {
+                int color = smooth ? palette.smoothColorOf(samples[i], fractions[i]) : palette.colorOf(samples[i]);
+                red += (color >> 16) & 0xff;
+                green += (color >> 8) & 0xff;
+                blue += color & 0xff;
+            }
+            argb[y * math.width + pixels[p]] = 0xff000000 | ((red / SAMPLES) << 16) | ((green / SAMPLES) << 8) | (blue / SAMPLES);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/**
+ * Desc: remembers square tiles of iteration counts that were already calculated
+ * so zooming back out or resetting the view doesnt calculate them all over again,
+ * the tiles sit on a grid over the fractal that only depends on the zoom level
+ * and the least recently used ones get thrown out once the cache gets too big,
+ * it can also keep every tile in a file so they are still there next time
+ */
+package FractalExplorer.scr;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class FractalTileCache {
+
+    //width and height of a tile in pixels
+    public static final int TILE_SIZE = 64;
+    //memory one tile takes up, the iterations and states plus a guess for the key and map entry
+    private static final long TILE_BYTES = (long) TILE_SIZE * TILE_SIZE * (Integer.BYTES + 1) + 128;
+
+    private long maxBytes;
+    private long usedBytes;
+    //access ordered so the first entry is always the least recently used one
+    private LinkedHashMap<TileKey, Tile> tiles = new LinkedHashMap<>(256, 0.75f, true);
+
+    //tiles from earlier runs of the program, null if there is no file
+    private FractalTileStore store;
+
+    //stats since the cache was made
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private long storeHitCount;
+
+    /**
+     * @param maxBytes how much memory the tiles are allowed to take up
+     */
+    public FractalTileCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * keeps the tiles in a file as well as in memory
+     * @param store file to keep the tiles in
+     * @see FractalTileStore
+     */
+    public synchronized void setStore(FractalTileStore store) {
+        this.store = store;
+    }
+
+    /**
+     * looks for the tile in memory and then in the file, a tile from the file
+     * gets read straight out of its memory map instead of being copied into memory
+     * so it is only good untill the next time the cache gets used and has to be released once its read
+     * @param key where the tile is
+     * @return the tile or null if it isnt cached
+     * @see FractalTileStore#get(TileKey)
+     */
+    public synchronized Tile get(TileKey key) {
+        Tile tile = tiles.get(key);
+        if (tile == null && store != null) {
+            try {
+                tile = store.get(key);
+            } catch (IOException e) {
+                closeStore(e);
+            }
+            if (tile != null) {
+                storeHitCount++;
+            }
+        }
+        if (tile == null) {
+            missCount++;
+        } else {
+            hitCount++;
+        }
+        return tile;
+    }
+
+    /**
+     * @param key where the tile is
+     * @return true if the tile is cached, doesnt count as using it
+     */
+    public synchronized boolean contains(TileKey key) {
+        return tiles.containsKey(key) || (store != null && store.contains(key));
+    }
+
+    /**
+     * adds a tile to the memory and the file
+     * @param key where the tile is
+     * @param tile the iteration counts of the tile
+     */
+    public synchronized void put(TileKey key, Tile tile) {
+        putInMemory(key, tile);
+        if (store != null) {
+            try {
+                store.put(key, tile);
+            } catch (IOException e) {
+                closeStore(e);
+            }
+        }
+    }
+
+    /**
+     * adds a tile and throws out the least recently used tiles
+     * untill the cache fits in its memory again
+     * @param key where the tile is
+     * @param tile the iteration counts of the tile
+     */
+    private void putInMemory(TileKey key, Tile tile) {
+        if (tiles.put(key, tile) == null) {
+            usedBytes += TILE_BYTES;
+        }
+        Iterator<Map.Entry<TileKey, Tile>> eldest = tiles.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            usedBytes -= TILE_BYTES;
+            evictionCount++;
+        }
+    }
+
+    /**
+     * stops using the file once something goes wrong with it,
+     * the tiles in memory keep working without it
+     */
+    private void closeStore(IOException e) {
+        System.out.println("Tile file stopped working: " + e.getMessage());
+        try {
+            store.close();
+        } catch (IOException ignored) {
+            //its getting dropped anyway
+        }
+        store = null;
+    }
+
+    /**
+     * writes everything to the file and closes it
+     */
+    public synchronized void close() {
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.out.println("Tile file could not be closed: " + e.getMessage());
+            }
+            store = null;
+        }
+    }
+
+    /**
+     * forgets every tile in memory but keeps the stats
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return how much memory the cached tiles take up
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return all the stats in one line for printing
+     */
+    public synchronized String getStats() {
+        String stats = "Tiles: " + tiles.size() + " (" + (usedBytes >> 20) + "/" + (maxBytes >> 20) + "MB)"
+            + " Hits: " + hitCount + " Misses: " + missCount + " Evictions: " + evictionCount;
+        if (store != null) {
+            stats += " File tiles: " + store.size() + " (" + (store.getLength() >> 20) + "MB)"
+                + " File hits: " + storeHitCount + " Compactions: " + store.compactionCount;
+        }
+        return stats;
+    }
+
+    /**
+     * the iteration counts and states of the pixels of a tile a row at a time
+     */
+    public static class Tile {
+        public int[] iterations;
+        public byte[] pixelState;
+
+        public Tile() {
+            this(new int[TILE_SIZE * TILE_SIZE], new byte[TILE_SIZE * TILE_SIZE]);
+        }
+
+        /**
+         * @param iterations the counts, null if they get read from somewhere else
+         * @param pixelState the states, null if they get read from somewhere else
+         */
+        protected Tile(int[] iterations, byte[] pixelState) {
+            this.iterations = iterations;
+            this.pixelState = pixelState;
+        }
+
+        /**
+         * @param index of the pixel in the tile
+         * @return its iteration count
+         */
+        public int iterationsAt(int index) {
+            return iterations[index];
+        }
+
+        /**
+         * @param index of the pixel in the tile
+         * @return its state
+         */
+        public byte stateAt(int index) {
+            return pixelState[index];
+        }
+
+        /**
+         * says the tile isnt being read anymore, only matters for tiles read out of the file
+         * @see FractalTileStore#get(TileKey)
+         */
+        public void release() {
+        }
+    }
+
+    /**
+     * everything that changes what the pixels of a tile come out as,
+     * the seed also says which fractal it is since the mandelbrot set has a seed of 0
+     */
+    public static class TileKey {
+        public final double seedReal;
+        public final double seedImag;
+        public final int zoomLevel;
+        public final long tileX;
+        public final long tileY;
+        public final int maxIter;
+
+        /**
+         * @param seedReal real part of the julia seed
+         * @param seedImag imaginary part of the julia seed
+         * @param zoomLevel how many zoom steps the view is zoomed in
+         * @param tileX column of the tile on the grid
+         * @param tileY row of the tile on the grid
+         * @param maxIter iteration limit the tile was calculated with
+         */
+        public TileKey(double seedReal, double seedImag, int zoomLevel, long tileX, long tileY, int maxIter) {
+            this.seedReal = seedReal;
+            this.seedImag = seedImag;
+            this.zoomLevel = zoomLevel;
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.maxIter = maxIter;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof TileKey)) {
+                return false;
+            }
+            TileKey key = (TileKey) other;
+            return Double.compare(seedReal, key.seedReal) == 0 && Double.compare(seedImag, key.seedImag) == 0
+                && zoomLevel == key.zoomLevel && tileX == key.tileX && tileY == key.tileY && maxIter == key.maxIter;
+        }
+
+        @Override
+        public int hashCode() {
+            long hash = Double.doubleToLongBits(seedReal);
+            hash = hash * 31 + Double.doubleToLongBits(seedImag);
+            hash = hash * 31 + zoomLevel;
+            hash = hash * 31 + tileX;
+            hash = hash * 31 + tileY;
+            hash = hash * 31 + maxIter;
+            return Long.hashCode(hash);
+        }
+    }
+}
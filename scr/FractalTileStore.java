@@ -0,0 +1,279 @@
+/**
+ * Desc: keeps the cached tiles in a file so they survive the program closing,
+ * new tiles only ever get added to the end of the file and are read back
+ * through a memory map of it, where every tile is in the file is found
+ * by reading through it once when its opened and once the file gets too big
+ * the oldest tiles get thrown out by copying the newer ones into a new file
+ * that takes the place of the old one, the old file never shrinks under its map
+ */
+package FractalExplorer.scr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FractalTileStore {
+
+    //first bytes of every tile in the file so a half written one at the end can be spotted
+    private static final int MAGIC = 0x46544c31;
+    //goes up every time the layout of a tile changes, files with a different one get thrown out
+    private static final int VERSION = 2;
+    private static final int PIXELS = FractalTileCache.TILE_SIZE * FractalTileCache.TILE_SIZE;
+    //magic, version, seed, zoom level, tile cordinates and iteration limit
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4 + 8 + 8 + 4;
+    //every tile takes up exactly this much so they can be found by their offset
+    private static final int RECORD_BYTES = HEADER_BYTES + PIXELS * Integer.BYTES + PIXELS;
+
+    private Path file;
+    private FileChannel channel;
+    //read only view of the file, gets mapped again when tiles get added past its end
+    private MappedByteBuffer mapped;
+    //where the next tile goes
+    private long length;
+    private long maxBytes;
+    //where every tile is in the file, oldest first
+    private LinkedHashMap<FractalTileCache.TileKey, Long> index = new LinkedHashMap<>();
+    //the tile get() hands out, pointed at a different part of the map every time
+    private MappedTile mappedTile = new MappedTile();
+    //true from get() handing out the tile untill it gets released, the file isnt compacted in between
+    private boolean tileInUse;
+    //one tile worth of bytes reused for writing
+    private ByteBuffer record = ByteBuffer.allocateDirect(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+    //stats since the file was opened
+    public long compactionCount;
+
+    /**
+     * opens the file (or makes it) and finds every tile in it
+     * @param file where the tiles get stored, only holds tiles of one canvas size
+     * @param maxBytes how big the file can get before the oldest tiles get thrown out
+     * @throws IOException if the file cant be opened
+     */
+    public FractalTileStore(Path file, long maxBytes) throws IOException {
+        //the memory map is read with int positions
+        this.maxBytes = Math.min(Math.max(maxBytes, 2L * RECORD_BYTES), Integer.MAX_VALUE);
+        this.file = file;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        channel = open(file);
+        rebuildIndex();
+    }
+
+    /**
+     * reads the header of every tile in the file to find where they all are,
+     * anything after the last whole tile is left over from the program
+     * closing while writing and gets cut off, so is everything
+     * written with a different version of the layout
+     */
+    private void rebuildIndex() throws IOException {
+        index.clear();
+        long size = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        length = 0;
+        while (length + RECORD_BYTES <= size) {
+            header.clear();
+            channel.read(header, length);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                break;
+            }
+            index.put(readKey(header), length);
+            length += RECORD_BYTES;
+        }
+        if (length < size) {
+            channel.truncate(length);
+        }
+        mapped = null;
+    }
+
+    /**
+     * @param buffer positioned right after the magic and version of a tile
+     * @return the key stored in the header
+     */
+    private static FractalTileCache.TileKey readKey(ByteBuffer buffer) {
+        double seedReal = buffer.getDouble();
+        double seedImag = buffer.getDouble();
+        int zoomLevel = buffer.getInt();
+        long tileX = buffer.getLong();
+        long tileY = buffer.getLong();
+        int maxIter = buffer.getInt();
+        return new FractalTileCache.TileKey(seedReal, seedImag, zoomLevel, tileX, tileY, maxIter);
+    }
+
+    /**
+     * @param key where the tile is
+     * @return true if the tile is in the file
+     */
+    public synchronized boolean contains(FractalTileCache.TileKey key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * finds a tile in the memory mapped file without copying it anywhere,
+     * the tile reads its pixels straight out of the map and is the same
+     * one every time so it is only good untill the store gets used again,
+     * the file doesnt get compacted untill the tile is released
+     * @param key where the tile is
+     * @return the tile or null if it isnt in the file
+     * @throws IOException if the file cant be mapped
+     */
+    public synchronized FractalTileCache.Tile get(FractalTileCache.TileKey key) throws IOException {
+        Long offset = index.get(key);
+        if (offset == null) {
+            return null;
+        }
+        if (mapped == null || mapped.capacity() < offset + RECORD_BYTES) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        mappedTile.buffer = mapped;
+        mappedTile.iterationsStart = (int) (offset + HEADER_BYTES);
+        mappedTile.stateStart = (int) (offset + HEADER_BYTES + PIXELS * Integer.BYTES);
+        tileInUse = true;
+        return mappedTile;
+    }
+
+    /**
+     * adds a tile to the end of the file, making room first if its full
+     * unless the tile from get() is still being read, then it goes past the limit for now
+     * @param key where the tile is
+     * @param tile the iteration counts of the tile
+     * @throws IOException if the tile cant be written
+     */
+    public synchronized void put(FractalTileCache.TileKey key, FractalTileCache.Tile tile) throws IOException {
+        if (index.containsKey(key)) {
+            return;
+        }
+        if (length + RECORD_BYTES > maxBytes && !tileInUse) {
+            compact();
+        }
+        record.clear();
+        record.putInt(MAGIC);
+        record.putInt(VERSION);
+        record.putDouble(key.seedReal);
+        record.putDouble(key.seedImag);
+        record.putInt(key.zoomLevel);
+        record.putLong(key.tileX);
+        record.putLong(key.tileY);
+        record.putInt(key.maxIter);
+        record.asIntBuffer().put(tile.iterations);
+        record.position(HEADER_BYTES + PIXELS * Integer.BYTES);
+        record.put(tile.pixelState);
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record, length + record.position());
+        }
+        index.put(key, length);
+        length += RECORD_BYTES;
+    }
+
+    /**
+     * throws out the oldest tiles untill the file is half full by copying the
+     * newer ones into a new file and putting it in place of the old one,
+     * the old file isnt cut down since its map stays alive untill it gets garbage collected
+     * and on some systems a mapped file cant shrink
+     */
+    private void compact() throws IOException {
+        long dropBytes = length - maxBytes / 2;
+        Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+        LinkedHashMap<FractalTileCache.TileKey, Long> kept = new LinkedHashMap<>();
+        long writeAt = 0;
+        try (FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<FractalTileCache.TileKey, Long> entry : index.entrySet()) {
+                if (entry.getValue() < dropBytes) {
+                    continue;
+                }
+                long moved = 0;
+                while (moved < RECORD_BYTES) {
+                    moved += channel.transferTo(entry.getValue() + moved, RECORD_BYTES - moved, target.position(writeAt + moved));
+                }
+                kept.put(entry.getKey(), writeAt);
+                writeAt += RECORD_BYTES;
+            }
+            target.force(false);
+        }
+        mapped = null;
+        channel.close();
+        try {
+            Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            //if the move failed the old file and the index still go together
+            channel = open(file);
+        }
+        index = kept;
+        length = writeAt;
+        compactionCount++;
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * @return how many tiles are in the file
+     */
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * @return how big the file is in bytes
+     */
+    public synchronized long getLength() {
+        return length;
+    }
+
+    /**
+     * a tile that reads its pixels out of the memory map where they are in the file
+     */
+    private class MappedTile extends FractalTileCache.Tile {
+        //the map the tile is in, kept so a compaction cant move the tile out from under it
+        MappedByteBuffer buffer;
+        //where the tile's counts and states start in the map
+        int iterationsStart;
+        int stateStart;
+
+        MappedTile() {
+            super(null, null);
+        }
+
+        @Override
+        public int iterationsAt(int index) {
+            return buffer.getInt(iterationsStart + index * Integer.BYTES);
+        }
+
+        @Override
+        public byte stateAt(int index) {
+            return buffer.get(stateStart + index);
+        }
+
+        @Override
+        public void release() {
+            synchronized (FractalTileStore.this) {
+                tileInUse = false;
+            }
+        }
+    }
+
+    /**
+     * makes sure everything got written and closes the file
+     */
+    public synchronized void close() throws IOException {
+        mapped = null;
+        channel.force(false);
+        channel.close();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Desc: what the vector kernels look like to the rest of the program, the kernels
+ * themselves are in scr/vector since they need the incubating vector module to compile
+ * and run, everything else builds and runs without it and only loads them if its there
+ * @see FractalVectorMath
+ */
+package FractalExplorer.scr;
+
+public interface FractalVectorKernels {
+
+    /**
+     * calculates the mandelbrot set for a group of points
+     * @param real real part of each point
+     * @param imag imaginary part of each point
+     * @param iterations where the iteration count of each point gets stored
+     * @param orbitReal where the real part of z gets stored for each point
+     * @param orbitImag where the imaginary part of z gets stored for each point
+     * @param length how many points to calculate
+     * @param maxIter the maximum amount of iterations
+     * @param tolerance how close an orbit has to come back to an old point to count as stuck in a cycle
+     * @return iterations skipped because a point was stuck in a cycle
+     * @see FractalMath#mandelbrotSet(int, int)
+     */
+    long mandelbrotSet(double[] real, double[] imag, int[] iterations,
+            double[] orbitReal, double[] orbitImag, int length, int maxIter, double tolerance);
+
+    /**
+     * calculates the julia set for a group of points
+     * @param seedReal real part of the julia seed
+     * @param seedImag imaginary part of the julia seed
+     * @param cycleReal real part of a point of the seed's attracting cycle
+     * @param cycleImag imaginary part of a point of the seed's attracting cycle
+     * @param cycleRadiusSqr anything closer to the cycle point than this never escapes, 0 if there is no cycle
+     * @return iterations skipped because a point fell into the cycle
+     * @see this{@link #mandelbrotSet(double[], double[], int[], double[], double[], int, int, double)}
+     * @see FractalMath#juliaSet(int, int)
+     */
+    long juliaSet(double[] real, double[] imag, int[] iterations,
+            double[] orbitReal, double[] orbitImag, int length, int maxIter,
+            double seedReal, double seedImag, double cycleReal, double cycleImag, double cycleRadiusSqr);
+
+    /**
+     * mandelbrotSet but with floats
+     * @see FractalMath#mandelbrotSetFloat(int, int)
+     */
+    long mandelbrotSetFloat(double[] real, double[] imag, int[] iterations,
+            double[] orbitReal, double[] orbitImag, int length, int maxIter, double tolerance);
+
+    /**
+     * juliaSet but with floats
+     * @see FractalMath#juliaSetFloat(int, int)
+     */
+    long juliaSetFloat(double[] real, double[] imag, int[] iterations,
+            double[] orbitReal, double[] orbitImag, int length, int maxIter,
+            double seedReal, double seedImag, double cycleReal, double cycleImag, double cycleRadiusSqr);
+
+    /**
+     * loads the vector kernels by name so nothing refers to them
+     * directly and the rest of the program never needs the vector module
+     * @return the kernels or null if the jvm wasnt started with the vector module
+     * or they werent compiled
+     */
+    static FractalVectorKernels load() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return (FractalVectorKernels) Class.forName("FractalExplorer.scr.FractalVectorMath")
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
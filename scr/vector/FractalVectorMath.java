@@ -0,0 +1,266 @@
+/**
+ * Desc: calculates several pixels of the fractal at once using the SIMD
+ * instructions of the cpu through the incubating vector api
+ * needs to be compiled and ran with --add-modules jdk.incubator.vector
+ * so it lives on its own and only gets loaded by name if the module is there
+ * every lane does the exact same math as the scalar versions in FractalMath
+ * so both give back the same iteration counts
+ * @see FractalVectorKernels#load()
+ */
+package FractalExplorer.scr;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+public class FractalVectorMath implements FractalVectorKernels {
+
+    //as many doubles as the cpu can fit in one register (4 with AVX2, 8 with AVX-512)
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    //the same number of lanes but as ints so the iteration counts can be stored directly
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED.withShape(
+            VectorShape.forBitSize(SPECIES.vectorBitSize() / 2));
+    //twice as many lanes for the float precision kernels
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> FLOAT_INT_SPECIES = IntVector.SPECIES_PREFERRED.withShape(
+            FLOAT_SPECIES.vectorShape());
+    //lanes of the float kernels, one set per thread so they dont need new arrays every time they get called
+    private static final ThreadLocal<FloatLanes> floatLanes = ThreadLocal.withInitial(FloatLanes::new);
+
+    /**
+     * @return how many pixels get calculated at the same time
+     */
+    public static int laneCount() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public long mandelbrotSet(double[] real, double[] imag, int[] iterations,
+            double[] orbitReal, double[] orbitImag, int length, int maxIter, double tolerance) {
+        long saved = 0;
+        for (int k = 0; k < length; k += SPECIES.length()) {
+            VectorMask<Double> inRange = SPECIES.indexInRange(k, length);
+            DoubleVector cReal = DoubleVector.fromArray(SPECIES, real, k, inRange);
+            DoubleVector cImag = DoubleVector.fromArray(SPECIES, imag, k, inRange);
+            DoubleVector zero = DoubleVector.zero(SPECIES);
+            saved += iterate(zero, zero, cReal, cImag, inRange, maxIter, tolerance, 0, 0, 0,
+                    iterations, orbitReal, orbitImag, k, length);
+        }
+        return saved;
+    }
+
+    @Override
+    public long juliaSet(double[] real, double[] imag, int[] iterations,
+            double[] orbitReal, double[] orbitImag, int length, int maxIter,
+            double seedReal, double seedImag, double cycleReal, double cycleImag, double cycleRadiusSqr) {
+        DoubleVector cReal = DoubleVector.broadcast(SPECIES, seedReal);
+        DoubleVector cImag = DoubleVector.broadcast(SPECIES, seedImag);
+        long saved = 0;
+        for (int k = 0; k < length; k += SPECIES.length()) {
+            VectorMask<Double> inRange = SPECIES.indexInRange(k, length);
+            DoubleVector zReal = DoubleVector.fromArray(SPECIES, real, k, inRange);
+            DoubleVector zImag = DoubleVector.fromArray(SPECIES, imag, k, inRange);
+            saved += iterate(zReal, zImag, cReal, cImag, inRange, maxIter, 0, cycleReal, cycleImag, cycleRadiusSqr,
+                    iterations, orbitReal, orbitImag, k, length);
+        }
+        return saved;
+    }
+
+    @Override
+    public long mandelbrotSetFloat(double[] real, double[] imag, int[] iterations,
+            double[] orbitReal, double[] orbitImag, int length, int maxIter, double tolerance) {
+        FloatLanes lanes = floatLanes.get();
+        float[] cReal = lanes.real;
+        float[] cImag = lanes.imag;
+        FloatVector zero = FloatVector.zero(FLOAT_SPECIES);
+        long saved = 0;
+        for (int k = 0; k < length; k += FLOAT_SPECIES.length()) {
+            VectorMask<Float> inRange = FLOAT_SPECIES.indexInRange(k, length);
+            //the points are worked out in doubles so they need to be shrunk first
+            for (int lane = 0; lane < cReal.length && k + lane < length; lane++) {
+                cReal[lane] = (float) real[k + lane];
+                cImag[lane] = (float) imag[k + lane];
+            }
+            saved += iterate(zero, zero, FloatVector.fromArray(FLOAT_SPECIES, cReal, 0),
+                    FloatVector.fromArray(FLOAT_SPECIES, cImag, 0), inRange, maxIter, (float) tolerance, 0, 0, 0,
+                    lanes, iterations, orbitReal, orbitImag, k, length);
+        }
+        return saved;
+    }
+
+    @Override
+    public long juliaSetFloat(double[] real, double[] imag, int[] iterations,
+            double[] orbitReal, double[] orbitImag, int length, int maxIter,
+            double seedReal, double seedImag, double cycleReal, double cycleImag, double cycleRadiusSqr) {
+        FloatLanes lanes = floatLanes.get();
+        float[] zReal = lanes.zReal;
+        float[] zImag = lanes.zImag;
+        FloatVector cReal = FloatVector.broadcast(FLOAT_SPECIES, (float) seedReal);
+        FloatVector cImag = FloatVector.broadcast(FLOAT_SPECIES, (float) seedImag);
+        long saved = 0;
+        for (int k = 0; k < length; k += FLOAT_SPECIES.length()) {
+            VectorMask<Float> inRange = FLOAT_SPECIES.indexInRange(k, length);
+            for (int lane = 0; lane < zReal.length && k + lane < length; lane++) {
+                zReal[lane] = (float) real[k + lane];
+                zImag[lane] = (float) imag[k + lane];
+            }
+            saved += iterate(FloatVector.fromArray(FLOAT_SPECIES, zReal, 0), FloatVector.fromArray(FLOAT_SPECIES, zImag, 0),
+                    cReal, cImag, inRange, maxIter, 0, (float) cycleReal, (float) cycleImag, (float) cycleRadiusSqr,
+                    lanes, iterations, orbitReal, orbitImag, k, length);
+        }
+        return saved;
+    }
+
+    /**
+     * iterates z = z^2 + c on every lane untill all of them escape, hit the iteration limit
+     * or are proven to never escape, lanes that stopped keep their z so they never count up again
+     * @param tolerance how close a lane has to come back to an old point of its orbit to count as stuck (brent's algorithm), 0 to not check
+     * @param cycle point of the julia seed's attracting cycle and the radius around it that never escapes, 0 to not check
+     * @param iterations where the iteration count of every lane gets stored starting at offset
+     * @param orbitReal where the final z of every lane gets stored starting at offset
+     * @param orbitImag same for the imaginary part of z
+     * @param length how many points there are in total
+     * @return iterations skipped because lanes were stuck
+     */
+    private static long iterate(DoubleVector zReal, DoubleVector zImag,
+            DoubleVector cReal, DoubleVector cImag, VectorMask<Double> inRange, int maxIter,
+            double tolerance, double cycleReal, double cycleImag, double cycleRadiusSqr,
+            int[] iterations, double[] orbitReal, double[] orbitImag, int offset, int length) {
+        DoubleVector realSqr = zReal.mul(zReal);
+        DoubleVector imagSqr = zImag.mul(zImag);
+        DoubleVector count = DoubleVector.broadcast(SPECIES, 1);
+        //lanes that will never escape so they get the limit straight away
+        VectorMask<Double> stuck = SPECIES.maskAll(false);
+        //every lane starts on the same iteration so they all check against a new point at the same time
+        DoubleVector checkReal = zReal;
+        DoubleVector checkImag = zImag;
+        int checkLength = 1;
+        int sinceCheck = 0;
+        long saved = 0;
+
+        for (int i = 1; i < maxIter; i++) {
+            //lanes that have not escaped yet
+            VectorMask<Double> active = realSqr.add(imagSqr).compare(VectorOperators.LT, 4).and(inRange).andNot(stuck);
+            if (!active.anyTrue()) {
+                break;
+            }
+            //same order of operations as the scalar loop so the rounding is identical
+            DoubleVector newImag = zReal.mul(2).mul(zImag).add(cImag);
+            DoubleVector newReal = realSqr.sub(imagSqr).add(cReal);
+            zImag = zImag.blend(newImag, active);
+            zReal = zReal.blend(newReal, active);
+            count = count.add(1, active);
+            realSqr = zReal.mul(zReal);
+            imagSqr = zImag.mul(zImag);
+
+            VectorMask<Double> caught;
+            if (tolerance > 0) {
+                caught = zReal.sub(checkReal).abs().compare(VectorOperators.LT, tolerance)
+                    .and(zImag.sub(checkImag).abs().compare(VectorOperators.LT, tolerance)).and(active);
+                sinceCheck++;
+                if (sinceCheck == checkLength) {
+                    checkReal = zReal;
+                    checkImag = zImag;
+                    checkLength *= 2;
+                    sinceCheck = 0;
+                }
+            } else if (cycleRadiusSqr > 0) {
+                DoubleVector distReal = zReal.sub(cycleReal);
+                DoubleVector distImag = zImag.sub(cycleImag);
+                caught = distReal.mul(distReal).add(distImag.mul(distImag)).compare(VectorOperators.LT, cycleRadiusSqr).and(active);
+            } else {
+                continue;
+            }
+            if (caught.anyTrue()) {
+                saved += (long) (maxIter - i - 1) * caught.trueCount();
+                count = count.blend(maxIter, caught);
+                stuck = stuck.or(caught);
+            }
+        }
+
+        ((IntVector) count.castShape(INT_SPECIES, 0)).intoArray(iterations, offset, INT_SPECIES.indexInRange(offset, length));
+        zReal.intoArray(orbitReal, offset, inRange);
+        zImag.intoArray(orbitImag, offset, inRange);
+        return saved;
+    }
+
+    /**
+     * float version of this{@link #iterate(DoubleVector, DoubleVector, DoubleVector, DoubleVector, VectorMask, int, double, double, double, double, int[], double[], double[], int, int)}
+     * the final z of every lane goes through the lanes since the orbits get stored as doubles
+     */
+    private static long iterate(FloatVector zReal, FloatVector zImag,
+            FloatVector cReal, FloatVector cImag, VectorMask<Float> inRange, int maxIter,
+            float tolerance, float cycleReal, float cycleImag, float cycleRadiusSqr,
+            FloatLanes lanes, int[] iterations, double[] orbitReal, double[] orbitImag, int offset, int length) {
+        FloatVector realSqr = zReal.mul(zReal);
+        FloatVector imagSqr = zImag.mul(zImag);
+        FloatVector count = FloatVector.broadcast(FLOAT_SPECIES, 1);
+        VectorMask<Float> stuck = FLOAT_SPECIES.maskAll(false);
+        FloatVector checkReal = zReal;
+        FloatVector checkImag = zImag;
+        int checkLength = 1;
+        int sinceCheck = 0;
+        long saved = 0;
+
+        for (int i = 1; i < maxIter; i++) {
+            VectorMask<Float> active = realSqr.add(imagSqr).compare(VectorOperators.LT, 4).and(inRange).andNot(stuck);
+            if (!active.anyTrue()) {
+                break;
+            }
+            FloatVector newImag = zReal.mul(2).mul(zImag).add(cImag);
+            FloatVector newReal = realSqr.sub(imagSqr).add(cReal);
+            zImag = zImag.blend(newImag, active);
+            zReal = zReal.blend(newReal, active);
+            count = count.add(1, active);
+            realSqr = zReal.mul(zReal);
+            imagSqr = zImag.mul(zImag);
+
+            VectorMask<Float> caught;
+            if (tolerance > 0) {
+                caught = zReal.sub(checkReal).abs().compare(VectorOperators.LT, tolerance)
+                    .and(zImag.sub(checkImag).abs().compare(VectorOperators.LT, tolerance)).and(active);
+                sinceCheck++;
+                if (sinceCheck == checkLength) {
+                    checkReal = zReal;
+                    checkImag = zImag;
+                    checkLength *= 2;
+                    sinceCheck = 0;
+                }
+            } else if (cycleRadiusSqr > 0) {
+                FloatVector distReal = zReal.sub(cycleReal);
+                FloatVector distImag = zImag.sub(cycleImag);
+                caught = distReal.mul(distReal).add(distImag.mul(distImag)).compare(VectorOperators.LT, cycleRadiusSqr).and(active);
+            } else {
+                continue;
+            }
+            if (caught.anyTrue()) {
+                saved += (long) (maxIter - i - 1) * caught.trueCount();
+                count = count.blend(maxIter, caught);
+                stuck = stuck.or(caught);
+            }
+        }
+
+        ((IntVector) count.castShape(FLOAT_INT_SPECIES, 0)).intoArray(iterations, offset, FLOAT_INT_SPECIES.indexInRange(offset, length));
+        zReal.intoArray(lanes.zReal, 0);
+        zImag.intoArray(lanes.zImag, 0);
+        for (int lane = 0; lane < lanes.zReal.length && offset + lane < length; lane++) {
+            orbitReal[offset + lane] = lanes.zReal[lane];
+            orbitImag[offset + lane] = lanes.zImag[lane];
+        }
+        return saved;
+    }
+
+    /**
+     * one register worth of points shrunk to floats and the z they ended up at
+     */
+    private static class FloatLanes {
+        float[] real = new float[FLOAT_SPECIES.length()];
+        float[] imag = new float[FLOAT_SPECIES.length()];
+        float[] zReal = new float[FLOAT_SPECIES.length()];
+        float[] zImag = new float[FLOAT_SPECIES.length()];
+    }
+}
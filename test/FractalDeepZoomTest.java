@@ -0,0 +1,61 @@
+/**
+ * Desc: checks the perturbation engine puts every pixel on the same point
+ * and counts the same iterations as the double-doubles at zooms both can handle
+ */
+package FractalExplorer.scr;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+
+public class FractalDeepZoomTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final BigDecimal REAL = new BigDecimal("-0.743643887037158704752191506114774");
+    private static final BigDecimal IMAG = new BigDecimal("0.131825904205311970493132056385139");
+
+    /**
+     * counts how many pixels come out different with perturbation than with double-doubles,
+     * up to 1% of them are allowed to since a pixel right on the edge can go either way
+     * @param level how many zoom steps to zoom in
+     * @param dragX how far to drag the view before calculating it
+     * @param dragY how far to drag the view before calculating it
+     */
+    private void assertSameAsDoubleDoubles(int level, int dragX, int dragY) {
+        FractalMath math = new FractalMath(null, 2000, WIDTH, HEIGHT);
+        math.setView(REAL, IMAG, level);
+        math.updateOffset(dragX, dragY);
+        math.selectPrecision();
+        FractalDoubleDouble doubleDouble = new FractalDoubleDouble(math);
+        doubleDouble.prepare(math.getPreciseMinReal(), math.getPreciseMinImag());
+        //perturbation only runs past double-doubles so it has to be picked by hand
+        math.precision = FractalMath.PRECISION_ARBITRARY;
+        FractalDeepZoom deepZoom = math.getDeepZoom();
+        deepZoom.prepare();
+        int different = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (deepZoom.mandelbrotSet(x, y, -1) != doubleDouble.mandelbrotSet(x, y, -1)) {
+                    different++;
+                }
+            }
+        }
+        assertTrue(different <= WIDTH * HEIGHT / 100,
+            different + " pixels came out different at level " + level + " dragged " + dragX + "," + dragY);
+    }
+
+    @Test
+    public void perturbationMatchesDoubleDoubles() {
+        assertSameAsDoubleDoubles(220, 0, 0);
+        assertSameAsDoubleDoubles(300, 0, 0);
+    }
+
+    @Test
+    public void draggedPerturbationMatchesDoubleDoubles() {
+        assertSameAsDoubleDoubles(220, 13, -5);
+        assertSameAsDoubleDoubles(300, -20, 9);
+    }
+}
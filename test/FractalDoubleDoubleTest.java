@@ -0,0 +1,74 @@
+/**
+ * Desc: checks the double-double kernels put every pixel on the same point
+ * and count the same iterations as the double kernels where both can be used
+ */
+package FractalExplorer.scr;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class FractalDoubleDoubleTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    /**
+     * counts how many pixels come out different with double-doubles than with doubles,
+     * a pixel right on the edge can still come out different from rounding
+     * so up to 1% of them are allowed to
+     */
+    private void assertSameAsDoubles(double real, double imag, int level, double seedReal, double seedImag) {
+        FractalMath math = new FractalMath(null, 500, WIDTH, HEIGHT);
+        math.setSeed(seedReal, seedImag);
+        math.setView(real, imag, level);
+        math.selectPrecision();
+        assertTrue(math.precision == FractalMath.PRECISION_DOUBLE, "level " + level + " should be shallow enough for doubles");
+        FractalDoubleDouble doubleDouble = new FractalDoubleDouble(math);
+        doubleDouble.prepare(math.getPreciseMinReal(), math.getPreciseMinImag());
+        boolean mandelbrot = seedReal == 0 && seedImag == 0;
+        int different = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int doubles = mandelbrot ? math.mandelbrotSet(x, y) : math.juliaSet(x, y);
+                int doubleDoubles = mandelbrot ? doubleDouble.mandelbrotSet(x, y, -1) : doubleDouble.juliaSet(x, y, -1);
+                if (doubles != doubleDoubles) {
+                    different++;
+                }
+            }
+        }
+        assertTrue(different <= WIDTH * HEIGHT / 100, different + " pixels came out different at level " + level);
+    }
+
+    @Test
+    public void mandelbrotMatchesDoubles() {
+        assertSameAsDoubles(-0.5, 0, 0, 0, 0);
+        assertSameAsDoubles(-0.7436447860, 0.1318252536, 40, 0, 0);
+        assertSameAsDoubles(-0.7436447860, 0.1318252536, 150, 0, 0);
+    }
+
+    @Test
+    public void juliaMatchesDoubles() {
+        assertSameAsDoubles(0, 0, 0, -0.8, 0.156);
+        assertSameAsDoubles(0.1, 0.05, 30, -0.8, 0.156);
+    }
+
+    @Test
+    public void draggedViewMatchesDoubles() {
+        FractalMath math = new FractalMath(null, 500, WIDTH, HEIGHT);
+        math.setView(-0.7436447860, 0.1318252536, 60);
+        math.updateOffset(13, -5);
+        math.selectPrecision();
+        FractalDoubleDouble doubleDouble = new FractalDoubleDouble(math);
+        doubleDouble.prepare(math.getPreciseMinReal(), math.getPreciseMinImag());
+        int different = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (math.mandelbrotSet(x, y) != doubleDouble.mandelbrotSet(x, y, -1)) {
+                    different++;
+                }
+            }
+        }
+        assertTrue(different <= WIDTH * HEIGHT / 100, different + " pixels came out different after dragging");
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Desc: checks the edge tracer never skips a pixel it shouldnt by calculating
+ * every pixel of the frame again and comparing, with every engine
+ */
+package FractalExplorer.scr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class FractalEdgeTraceTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 256;
+
+    /**
+     * renders the view with both engines, with and without the distance estimate discs
+     * @see FractalEdgeTrace#verify()
+     */
+    private void assertNothingSkippedWrong(double real, double imag, int level, int maxIter, double seedReal, double seedImag) {
+        FractalMath math = new FractalMath(null, maxIter, WIDTH, HEIGHT);
+        math.setSeed(seedReal, seedImag);
+        math.setView(real, imag, level);
+        for (int engine : new int[] {FractalMath.ENGINE_RECTANGLES, FractalMath.ENGINE_BOUNDARY}) {
+            for (boolean discs : new boolean[] {false, true}) {
+                math.engine = engine;
+                math.useDistanceEstimation = discs;
+                math.edgeDetectionFractal();
+                assertEquals(0, math.getTracer().verify(),
+                    "wrong pixels with the " + math.getEngineName() + " engine" + (discs ? " and discs" : ""));
+            }
+        }
+    }
+
+    @Test
+    public void home() {
+        assertNothingSkippedWrong(-0.5, 0, 0, 1000, 0, 0);
+    }
+
+    @Test
+    public void seahorseValley() {
+        assertNothingSkippedWrong(-0.7436447860, 0.1318252536, 40, 1000, 0, 0);
+    }
+
+    @Test
+    public void juliaSet() {
+        assertNothingSkippedWrong(0, 0, 0, 1000, -0.8, 0.156);
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Desc: checks the view math of FractalMath holds up at zooms too deep for doubles
+ */
+package FractalExplorer.scr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import org.junit.jupiter.api.Test;
+
+public class FractalMathTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    /**
+     * drags the view and checks the precise center moved by exactly the pixels it got dragged
+     * @param level how many zoom steps to zoom in
+     */
+    private void assertDragMovesCenter(int level) {
+        FractalMath math = new FractalMath(null, 100, WIDTH, HEIGHT);
+        math.setView(new BigDecimal("-0.743643887037158704752191506114774"),
+            new BigDecimal("0.131825904205311970493132056385139"), level);
+        BigDecimal startReal = math.getDeepZoom().centerReal;
+        BigDecimal startImag = math.getDeepZoom().centerImag;
+
+        math.updateOffset(10, -7);
+
+        double realStep = (5.0 / math.zoom) / WIDTH;
+        double imagStep = (4.0 / math.zoom) / HEIGHT;
+        MathContext context = MathContext.DECIMAL64;
+        double movedReal = math.getDeepZoom().centerReal.subtract(startReal).round(context).doubleValue();
+        double movedImag = math.getDeepZoom().centerImag.subtract(startImag).round(context).doubleValue();
+        assertEquals(-10 * realStep, movedReal, 10 * realStep * 1e-6, "real part of the center at level " + level);
+        assertEquals(7 * imagStep, movedImag, 7 * imagStep * 1e-6, "imaginary part of the center at level " + level);
+    }
+
+    @Test
+    public void dragMovesCenterPastDoublePrecision() {
+        //a zoom of about 6.9e15, the borders still differ but only by a few doubles
+        assertDragMovesCenter(200);
+    }
+
+    @Test
+    public void dragMovesCenterWithDoubleDoubles() {
+        assertDragMovesCenter(250);
+    }
+
+    @Test
+    public void dragMovesCenterWithDeepZoom() {
+        assertDragMovesCenter(400);
+    }
+
+    @Test
+    public void pixelStepNeverRoundsToZero() {
+        FractalMath math = new FractalMath(null, 100, WIDTH, HEIGHT);
+        for (int level : new int[] {0, 200, 250, 400}) {
+            math.setView(-0.75, 0.1, level);
+            assertTrue(math.getRealStep() > 0, "real step at level " + level);
+            assertTrue(math.getImagStep() > 0, "imaginary step at level " + level);
+            assertEquals((5.0 / math.zoom) / WIDTH, math.getRealStep(), 0);
+        }
+    }
+
+    @Test
+    public void edgeFilterFindsEdgesInsideBlendedRectangles() {
+        FractalMath math = new FractalMath(null, 1000, 320, 256);
+        math.setView(-0.7436447860, 0.1318252536, 30);
+        math.getPalette().mode = FractalPalette.MODE_CONTINUOUS;
+        math.edgeDetectionFractal();
+        math.filter = 0;
+        math.colorData();
+        int[] colors = math.getPixels().clone();
+        math.filter = 2;
+        math.colorData();
+        int filledEdges = 0;
+        for (int y = 0; y < 256; y++) {
+            for (int x = 0; x < 320; x++) {
+                boolean edge = false;
+                for (int j = Math.max(y - 1, 0); j <= Math.min(y + 1, 255); j++) {
+                    for (int i = Math.max(x - 1, 0); i <= Math.min(x + 1, 319); i++) {
+                        edge |= colors[j * 320 + i] != colors[y * 320 + x];
+                    }
+                }
+                assertEquals(edge, math.isEdge(x, y), "edge at " + x + "," + y);
+                if (edge && math.getPixelState(x, y) == FractalMath.FILLED) {
+                    filledEdges++;
+                }
+            }
+        }
+        //the blended fractions give the filled pixels different colors from each other
+        assertTrue(filledEdges > 0, "no filled pixel was on an edge");
+    }
+}
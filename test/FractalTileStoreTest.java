@@ -0,0 +1,119 @@
+/**
+ * Desc: checks tiles come back out of the memory mapped file the way they went in
+ */
+package FractalExplorer.scr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class FractalTileStoreTest {
+
+    private static final int PIXELS = FractalTileCache.TILE_SIZE * FractalTileCache.TILE_SIZE;
+
+    @TempDir
+    Path folder;
+
+    private static FractalTileCache.Tile tile(int seed) {
+        FractalTileCache.Tile tile = new FractalTileCache.Tile();
+        for (int i = 0; i < PIXELS; i++) {
+            tile.iterations[i] = seed * 7919 + i;
+            tile.pixelState[i] = (byte) ((seed + i) % 4);
+        }
+        return tile;
+    }
+
+    private static void assertSameTile(FractalTileCache.Tile expected, FractalTileCache.Tile actual) {
+        for (int i = 0; i < PIXELS; i++) {
+            assertEquals(expected.iterationsAt(i), actual.iterationsAt(i), "iterations of pixel " + i);
+            assertEquals(expected.stateAt(i), actual.stateAt(i), "state of pixel " + i);
+        }
+    }
+
+    @Test
+    public void tilesSurviveReopening() throws IOException {
+        Path file = folder.resolve("tiles.dat");
+        FractalTileCache.TileKey first = new FractalTileCache.TileKey(0, 0, 3, -2, 5, 100);
+        FractalTileCache.TileKey second = new FractalTileCache.TileKey(-0.8, 0.156, 0, 1, 1, 1000);
+        FractalTileStore store = new FractalTileStore(file, 1L << 20);
+        store.put(first, tile(1));
+        store.put(second, tile(2));
+        store.close();
+
+        store = new FractalTileStore(file, 1L << 20);
+        assertEquals(2, store.size());
+        assertSameTile(tile(2), store.get(second));
+        assertSameTile(tile(1), store.get(first));
+        assertNull(store.get(new FractalTileCache.TileKey(0, 0, 3, -2, 5, 101)));
+        store.close();
+    }
+
+    @Test
+    public void tilesAddedAfterMappingCanBeRead() throws IOException {
+        FractalTileStore store = new FractalTileStore(folder.resolve("tiles.dat"), 1L << 20);
+        FractalTileCache.TileKey first = new FractalTileCache.TileKey(0, 0, 0, 0, 0, 100);
+        FractalTileCache.TileKey second = new FractalTileCache.TileKey(0, 0, 0, 1, 0, 100);
+        store.put(first, tile(1));
+        assertSameTile(tile(1), store.get(first));
+        //past the end of the map so it has to be mapped again
+        store.put(second, tile(2));
+        assertSameTile(tile(2), store.get(second));
+        store.close();
+    }
+
+    @Test
+    public void compactingKeepsTheNewestTilesAndOldViews() throws IOException {
+        Path file = folder.resolve("tiles.dat");
+        //room for 4 tiles so the 5th one compacts the file down to the newest 2
+        long record = FractalTileCache.TILE_SIZE * FractalTileCache.TILE_SIZE * 5L + 64;
+        FractalTileStore store = new FractalTileStore(file, 4 * record);
+        for (int i = 0; i < 4; i++) {
+            store.put(new FractalTileCache.TileKey(0, 0, 0, i, 0, 100), tile(i));
+        }
+        //a tile still being read keeps the file from compacting under it
+        FractalTileCache.Tile view = store.get(new FractalTileCache.TileKey(0, 0, 0, 3, 0, 100));
+        store.put(new FractalTileCache.TileKey(0, 0, 0, 4, 0, 100), tile(4));
+        assertEquals(0, store.compactionCount);
+        assertSameTile(tile(3), view);
+        view.release();
+
+        store.put(new FractalTileCache.TileKey(0, 0, 0, 5, 0, 100), tile(5));
+        assertEquals(1, store.compactionCount);
+        assertTrue(store.size() < 6);
+        assertNull(store.get(new FractalTileCache.TileKey(0, 0, 0, 0, 0, 100)));
+        assertSameTile(tile(5), store.get(new FractalTileCache.TileKey(0, 0, 0, 5, 0, 100)));
+        store.close();
+
+        store = new FractalTileStore(file, 4 * record);
+        assertSameTile(tile(4), store.get(new FractalTileCache.TileKey(0, 0, 0, 4, 0, 100)));
+        store.close();
+    }
+
+    @Test
+    public void filesOfAnotherVersionGetThrownOut() throws IOException {
+        Path file = folder.resolve("tiles.dat");
+        FractalTileStore store = new FractalTileStore(file, 1L << 20);
+        store.put(new FractalTileCache.TileKey(0, 0, 0, 0, 0, 100), tile(1));
+        store.close();
+        //changes the version right after the magic of the first tile
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ByteBuffer version = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(1);
+            version.flip();
+            channel.write(version, 4);
+        }
+        store = new FractalTileStore(file, 1L << 20);
+        assertEquals(0, store.size());
+        assertEquals(0, store.getLength());
+        store.close();
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Desc: checks the vector kernels count exactly the same iterations as the scalar kernels,
+ * skipped when the jvm wasnt started with the vector module
+ */
+package FractalExplorer.scr;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class FractalVectorKernelsTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 128;
+
+    @BeforeEach
+    public void needsVectorKernels() {
+        assumeTrue(FractalMath.isVectorAvailable(), "the vector kernels arent loaded");
+    }
+
+    /**
+     * calculates every row and every column of the view with the vector kernels
+     * and compares each pixel to the scalar kernel for the same precision
+     * @param allowFloat true to let the view use the float kernels
+     */
+    private void assertSameAsScalar(double real, double imag, int level, int maxIter,
+            double seedReal, double seedImag, boolean allowFloat) {
+        FractalMath math = new FractalMath(null, maxIter, WIDTH, HEIGHT);
+        math.setSeed(seedReal, seedImag);
+        math.setView(real, imag, level);
+        math.allowFloat = allowFloat;
+        math.useVector = true;
+        boolean mandelbrot = seedReal == 0 && seedImag == 0;
+        for (boolean vertical : new boolean[] {false, true}) {
+            math.startFrame();
+            if (vertical) {
+                for (int x = 0; x < WIDTH; x++) {
+                    math.drawFractalLine(x, 0, HEIGHT, true);
+                }
+            } else {
+                for (int y = 0; y < HEIGHT; y++) {
+                    math.drawFractalLine(0, y, WIDTH, false);
+                }
+            }
+            for (int y = 0; y < HEIGHT; y++) {
+                for (int x = 0; x < WIDTH; x++) {
+                    int scalar;
+                    if (math.precision == FractalMath.PRECISION_FLOAT) {
+                        scalar = mandelbrot ? math.mandelbrotSetFloat(x, y) : math.juliaSetFloat(x, y);
+                    } else {
+                        scalar = mandelbrot ? math.mandelbrotSet(x, y) : math.juliaSet(x, y);
+                    }
+                    assertEquals(scalar, math.getIterations(x, y), "pixel " + x + "," + y + " of the "
+                        + math.getPrecisionName() + (vertical ? " columns" : " rows") + " at level " + level);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mandelbrotMatchesScalar() {
+        assertSameAsScalar(-0.5, 0, 0, 1000, 0, 0, false);
+        assertSameAsScalar(-0.7436447860, 0.1318252536, 40, 1000, 0, 0, false);
+        assertSameAsScalar(0.2925, 0.0149, 30, 5000, 0, 0, false);
+    }
+
+    @Test
+    public void juliaMatchesScalar() {
+        assertSameAsScalar(0, 0, 0, 1000, -0.8, 0.156, false);
+        assertSameAsScalar(0, 0, 0, 1000, 0, 1, false);
+    }
+
+    @Test
+    public void floatsMatchScalar() {
+        assertSameAsScalar(-0.5, 0, 0, 1000, 0, 0, true);
+        assertSameAsScalar(0, 0, 0, 1000, -0.8, 0.156, true);
+    }
+}